@@ -170,6 +170,7 @@ public final class ApiPlugin extends JavaPlugin {
             if (wsManager != null) {
                 wsManager.getAllChannels().close();
             }
+            channelInitializer.shutdown();
         }
 
         // Close server channel
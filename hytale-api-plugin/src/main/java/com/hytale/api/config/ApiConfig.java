@@ -2,6 +2,7 @@ package com.hytale.api.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.hytale.api.security.PermissionSet;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -21,6 +22,7 @@ public record ApiConfig(
         String bindAddress,
         TlsConfig tls,
         JwtConfig jwt,
+        AuthConfig auth,
         List<ClientConfig> clients,
         RateLimitConfig rateLimits,
         CorsConfig cors,
@@ -33,15 +35,32 @@ public record ApiConfig(
 
     /**
      * TLS/SSL configuration for HTTPS support.
+     * Setting {@code clientCaPath} enables mutual TLS: client certificates signed by
+     * that CA are mapped to configured clients through {@code clientCertSubjects}
+     * (certificate subject DN or CN to client ID).
      */
     public record TlsConfig(
             boolean enabled,
             String certPath,
             String keyPath,
-            String keyPassword
+            String keyPassword,
+            String clientCaPath,
+            boolean requireClientCert,
+            Map<String, String> clientCertSubjects
     ) {
         public static TlsConfig defaults() {
-            return new TlsConfig(false, "cert.pem", "key.pem", null);
+            return new TlsConfig(false, "cert.pem", "key.pem", null, null, false, Map.of());
+        }
+
+        /**
+         * Whether client certificates are requested during the handshake.
+         */
+        public boolean isMutual() {
+            return enabled && clientCaPath != null && !clientCaPath.isBlank();
+        }
+
+        public Map<String, String> effectiveClientCertSubjects() {
+            return clientCertSubjects != null ? clientCertSubjects : Map.of();
         }
     }
 
@@ -54,7 +73,10 @@ public record ApiConfig(
             int tokenValiditySeconds,
             int refreshTokenValiditySeconds,
             String rsaKeyPath,
-            String algorithm
+            String algorithm,
+            int verifiedTokenCacheSize,
+            int keyRotationHours,
+            int keyGracePeriodSeconds
     ) {
         public static JwtConfig defaults() {
             return new JwtConfig(
@@ -63,88 +85,224 @@ public record ApiConfig(
                     3600,
                     86400,
                     "jwt-keypair.pem",
-                    "RS256"
+                    "RS256",
+                    1024,
+                    0,     // rotation disabled
+                    3600
             );
         }
+
+        /**
+         * Max verified tokens kept in memory (falls back to 1024 when unset).
+         */
+        public int effectiveVerifiedTokenCacheSize() {
+            return verifiedTokenCacheSize > 0 ? verifiedTokenCacheSize : 1024;
+        }
+
+        /**
+         * How long a rotated-out key still verifies tokens (falls back to token validity).
+         */
+        public int effectiveKeyGracePeriodSeconds() {
+            return keyGracePeriodSeconds > 0 ? keyGracePeriodSeconds : tokenValiditySeconds;
+        }
+    }
+
+    /**
+     * Client credential verification settings.
+     */
+    public record AuthConfig(
+            int verifierThreads,
+            int verifierQueueSize,
+            int successCacheSeconds,
+            int maxFailureBackoffSeconds
+    ) {
+        public static AuthConfig defaults() {
+            return new AuthConfig(
+                    2,    // bcrypt threads
+                    16,   // pending checks before rejecting
+                    60,   // cache successful checks for 1 minute
+                    300   // lock out failing clients for at most 5 minutes
+            );
+        }
+
+        public int effectiveVerifierThreads() {
+            return verifierThreads > 0 ? verifierThreads : 2;
+        }
+
+        public int effectiveVerifierQueueSize() {
+            return verifierQueueSize > 0 ? verifierQueueSize : 16;
+        }
+
+        public int effectiveMaxFailureBackoffSeconds() {
+            return maxFailureBackoffSeconds > 0 ? maxFailureBackoffSeconds : 300;
+        }
     }
 
     /**
      * API client configuration for authentication.
+     * {@code rateLimit} optionally overrides the default per-client quota.
+     * {@code permissions} is compiled once here, so permission checks need no lookup.
      */
     public record ClientConfig(
             String id,
             String secret,
             String description,
             Set<String> permissions,
-            boolean enabled
+            boolean enabled,
+            RateLimitConfig.EndpointRateLimit rateLimit
     ) {
+        public ClientConfig {
+            permissions = PermissionSet.compiled(permissions);
+        }
+
         public boolean hasPermission(String permission) {
-            if (permissions == null || permissions.isEmpty()) {
-                return false;
-            }
-            if (permissions.contains("api.*") || permissions.contains("*")) {
-                return true;
-            }
-            if (permissions.contains(permission)) {
-                return true;
-            }
-            // Check wildcard patterns (e.g., "api.admin.*" matches "api.admin.kick")
-            String[] parts = permission.split("\\.");
-            StringBuilder pattern = new StringBuilder();
-            for (int i = 0; i < parts.length - 1; i++) {
-                if (i > 0) pattern.append(".");
-                pattern.append(parts[i]);
-                if (permissions.contains(pattern + ".*")) {
-                    return true;
-                }
-            }
-            return false;
+            return PermissionSet.of(permissions).has(permission);
         }
     }
 
     /**
      * Rate limiting configuration.
+     * {@code defaultRequestsPerMinute}, {@code burstSize} and {@code endpoints} limit
+     * each IP per endpoint pattern, paths no pattern matches sharing one default
+     * bucket; {@code maxKeys} caps how many IPs are tracked, evicting
+     * the least recently seen beyond it. Authenticated clients additionally share one
+     * bucket across routes sized by {@code clientRequestsPerMinute}/{@code clientBurstSize},
+     * where each request costs its {@code routeCosts} weight (default 1).
      */
     public record RateLimitConfig(
             int defaultRequestsPerMinute,
             int burstSize,
-            Map<String, EndpointRateLimit> endpoints
+            Map<String, EndpointRateLimit> endpoints,
+            int maxKeys,
+            int clientRequestsPerMinute,
+            int clientBurstSize,
+            Map<String, Integer> routeCosts,
+            ConcurrencyLimitConfig concurrency,
+            SharedStateConfig sharedState
     ) {
         public record EndpointRateLimit(
                 int requestsPerMinute,
                 int burstSize
         ) {}
 
+        /**
+         * Optional bucket table shared by server processes on one host.
+         * {@code path} names a file on a volume every process mounts (relative paths
+         * resolve against the plugin data directory); unset keeps limits per process.
+         */
+        public record SharedStateConfig(
+                String path,
+                int slots
+        ) {
+            public boolean isEnabled() {
+                return path != null && !path.isBlank();
+            }
+
+            public int effectiveSlots() {
+                return slots > 0 ? slots : 65536;
+            }
+        }
+
+        /**
+         * Adaptive limit on in-flight API requests.
+         * Each adjustment interval the limit is multiplied by {@code backoffRatio} if
+         * mean handler latency, GC pause time or world-thread delay exceeds its
+         * threshold, and otherwise grows by one while requests are hitting it.
+         */
+        public record ConcurrencyLimitConfig(
+                boolean enabled,
+                int initialLimit,
+                int minLimit,
+                int maxLimit,
+                long latencyThresholdMillis,
+                long gcPauseThresholdMillis,
+                long tickLagThresholdMillis,
+                double backoffRatio,
+                long adjustIntervalMillis
+        ) {
+            public static ConcurrencyLimitConfig defaults() {
+                return new ConcurrencyLimitConfig(
+                        true,
+                        64,   // start at 64 in-flight requests
+                        4,    // never below 4
+                        256,  // never above 256
+                        250,  // mean handler latency
+                        200,  // GC time per interval
+                        100,  // world-thread queue delay (a tick is ~33ms)
+                        0.75, // cut by a quarter when unhealthy
+                        1000  // adjust every second
+                );
+            }
+
+            public int effectiveMinLimit() {
+                return minLimit > 0 ? minLimit : 4;
+            }
+
+            public int effectiveMaxLimit() {
+                return Math.max(effectiveMinLimit(), maxLimit > 0 ? maxLimit : 256);
+            }
+
+            public int effectiveInitialLimit() {
+                int initial = initialLimit > 0 ? initialLimit : 64;
+                return Math.min(effectiveMaxLimit(), Math.max(effectiveMinLimit(), initial));
+            }
+
+            public long effectiveLatencyThresholdMillis() {
+                return latencyThresholdMillis > 0 ? latencyThresholdMillis : 250;
+            }
+
+            public long effectiveGcPauseThresholdMillis() {
+                return gcPauseThresholdMillis > 0 ? gcPauseThresholdMillis : 200;
+            }
+
+            public long effectiveTickLagThresholdMillis() {
+                return tickLagThresholdMillis > 0 ? tickLagThresholdMillis : 100;
+            }
+
+            public double effectiveBackoffRatio() {
+                return backoffRatio > 0 && backoffRatio < 1 ? backoffRatio : 0.75;
+            }
+
+            public long effectiveAdjustIntervalMillis() {
+                return adjustIntervalMillis > 0 ? adjustIntervalMillis : 1000;
+            }
+        }
+
         public static RateLimitConfig defaults() {
             return new RateLimitConfig(
                     600,  // 600 requests per minute default
                     100,  // burst size 100
                     Map.of(
                             "/auth/token", new EndpointRateLimit(120, 20),  // 120/min, burst 20
+                            "/auth/refresh", new EndpointRateLimit(120, 20), // 120/min, burst 20
                             "/admin/*", new EndpointRateLimit(300, 50)     // 300/min, burst 50
-                    )
+                    ),
+                    100_000,  // track at most 100k clients/IPs
+                    1200, // 1200 cost units per minute per client
+                    200,  // client burst 200
+                    Map.of(
+                            "/server/stats", 5,  // walks every world
+                            "/worlds/*", 2
+                    ),
+                    ConcurrencyLimitConfig.defaults(),
+                    null  // limits are per process unless a shared table path is set
             );
         }
 
-        public EndpointRateLimit getForEndpoint(String path) {
-            // Check exact match first
-            if (endpoints != null && endpoints.containsKey(path)) {
-                return endpoints.get(path);
-            }
-            // Check wildcard patterns
-            if (endpoints != null) {
-                for (var entry : endpoints.entrySet()) {
-                    String pattern = entry.getKey();
-                    if (pattern.endsWith("/*")) {
-                        String prefix = pattern.substring(0, pattern.length() - 1);
-                        if (path.startsWith(prefix)) {
-                            return entry.getValue();
-                        }
-                    }
-                }
-            }
-            // Return default
-            return new EndpointRateLimit(defaultRequestsPerMinute, burstSize);
+        public ConcurrencyLimitConfig effectiveConcurrency() {
+            return concurrency != null ? concurrency : ConcurrencyLimitConfig.defaults();
+        }
+
+        public int effectiveMaxKeys() {
+            return maxKeys > 0 ? maxKeys : 100_000;
+        }
+
+        public int effectiveClientRequestsPerMinute() {
+            return clientRequestsPerMinute > 0 ? clientRequestsPerMinute : defaultRequestsPerMinute;
+        }
+
+        public int effectiveClientBurstSize() {
+            return clientBurstSize > 0 ? clientBurstSize : burstSize;
         }
     }
 
@@ -164,7 +322,8 @@ public record ApiConfig(
                     List.of("*"),
                     List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"),
                     List.of("Authorization", "Content-Type", "X-Request-ID"),
-                    List.of("X-Request-ID", "X-RateLimit-Remaining"),
+                    List.of("X-Request-ID", "X-RateLimit-Remaining",
+                            "RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset"),
                     true,
                     86400
             );
@@ -180,23 +339,200 @@ public record ApiConfig(
 
     /**
      * WebSocket configuration.
+     * A session's channel stops being writable when more than
+     * {@code writeBufferHighWaterMark} bytes are pending and becomes writable
+     * again below {@code writeBufferLowWaterMark}; meanwhile up to
+     * {@code maxQueuedMessages} events wait per session.
      */
     public record WebSocketConfig(
             boolean enabled,
             String path,
             int maxConnections,
             int pingIntervalSeconds,
-            int statusBroadcastIntervalSeconds
+            int statusBroadcastIntervalSeconds,
+            int maxQueuedMessages,
+            int writeBufferLowWaterMark,
+            int writeBufferHighWaterMark,
+            CompressionConfig compression,
+            ReplayConfig replay,
+            int statusKeyframeIntervalSeconds,
+            int maxInFlightRequests,
+            int maxMissedPongs,
+            int tokenExpiryWarningSeconds,
+            PositionConfig positions
     ) {
+        /**
+         * permessage-deflate (RFC 7692) settings, applied when the client offers the extension.
+         * With context takeover each session keeps its own deflate window, which
+         * compresses repetitive event streams best at the cost of memory per session.
+         *
+         * @param allowServerNoContextTakeover honour a client's request that the server reset its context per message
+         * @param clientNoContextTakeover      ask clients to reset their context per message
+         * @param clientMaxWindowBits          window size asked of clients (8-15)
+         * @param minFrameBytes                frames smaller than this are sent uncompressed
+         */
+        public record CompressionConfig(
+                boolean enabled,
+                int compressionLevel,
+                boolean allowServerNoContextTakeover,
+                boolean clientNoContextTakeover,
+                int clientMaxWindowBits,
+                int minFrameBytes
+        ) {
+            public static CompressionConfig defaults() {
+                return new CompressionConfig(
+                        true,
+                        6,     // zlib default level
+                        false,
+                        false,
+                        15,    // full 32 KiB window
+                        64     // tiny frames cost more to deflate than they save
+                );
+            }
+
+            public int effectiveCompressionLevel() {
+                return compressionLevel >= 1 && compressionLevel <= 9 ? compressionLevel : 6;
+            }
+
+            public int effectiveClientMaxWindowBits() {
+                return clientMaxWindowBits >= 8 && clientMaxWindowBits <= 15 ? clientMaxWindowBits : 15;
+            }
+        }
+
+        /**
+         * Recent event history kept per event type so reconnecting clients can resume.
+         * Once a topic has had a subscriber it keeps recording for
+         * {@code retentionSeconds} after the last one leaves.
+         */
+        public record ReplayConfig(
+                boolean enabled,
+                int maxEventsPerTopic,
+                int maxBytesPerTopic,
+                int retentionSeconds,
+                Set<String> excludedTopics
+        ) {
+            public static ReplayConfig defaults() {
+                return new ReplayConfig(
+                        true,
+                        1000,
+                        1024 * 1024,       // 1 MiB per topic
+                        300,               // keep recording 5 minutes after the last subscriber leaves
+                        Set.of("server.status") // state, not events; resubscribing sends a fresh snapshot
+                );
+            }
+
+            public int effectiveMaxEventsPerTopic() {
+                return maxEventsPerTopic > 0 ? maxEventsPerTopic : 1000;
+            }
+
+            public int effectiveMaxBytesPerTopic() {
+                return maxBytesPerTopic > 0 ? maxBytesPerTopic : 1024 * 1024;
+            }
+
+            public int effectiveRetentionSeconds() {
+                return retentionSeconds > 0 ? retentionSeconds : 300;
+            }
+
+            public Set<String> effectiveExcludedTopics() {
+                return excludedTopics != null ? excludedTopics : Set.of("server.status");
+            }
+        }
+
+        /**
+         * Sampling of the player.position topic. Positions are read once per
+         * sample for all subscribers; players that moved less than
+         * {@code minMoveDistance} blocks since a subscriber last saw them are left out.
+         */
+        public record PositionConfig(
+                boolean enabled,
+                int sampleRateHz,
+                double minMoveDistance
+        ) {
+            public static PositionConfig defaults() {
+                return new PositionConfig(true, 5, 0.1);
+            }
+
+            public int effectiveSampleRateHz() {
+                return sampleRateHz > 0 ? Math.min(sampleRateHz, 20) : 5;
+            }
+
+            public double effectiveMinMoveDistance() {
+                return minMoveDistance >= 0 ? minMoveDistance : 0.1;
+            }
+        }
+
         public static WebSocketConfig defaults() {
             return new WebSocketConfig(
                     true,
                     "/ws",
                     100,
                     30,
-                    5
+                    5,
+                    256,
+                    32 * 1024,
+                    128 * 1024,
+                    CompressionConfig.defaults(),
+                    ReplayConfig.defaults(),
+                    60,
+                    16,
+                    2,
+                    60,
+                    PositionConfig.defaults()
             );
         }
+
+        public CompressionConfig effectiveCompression() {
+            return compression != null ? compression : CompressionConfig.defaults();
+        }
+
+        public ReplayConfig effectiveReplay() {
+            return replay != null ? replay : ReplayConfig.defaults();
+        }
+
+        public PositionConfig effectivePositions() {
+            return positions != null ? positions : PositionConfig.defaults();
+        }
+
+        /**
+         * How often server.status subscribers get a full snapshot between deltas.
+         */
+        public int effectiveStatusKeyframeIntervalSeconds() {
+            return statusKeyframeIntervalSeconds > 0 ? statusKeyframeIntervalSeconds : 60;
+        }
+
+        /**
+         * Requests a session may have running at once over the socket.
+         */
+        public int effectiveMaxInFlightRequests() {
+            return maxInFlightRequests > 0 ? maxInFlightRequests : 16;
+        }
+
+        /**
+         * Consecutive unanswered server pings before a session is closed.
+         */
+        public int effectiveMaxMissedPongs() {
+            return maxMissedPongs > 0 ? maxMissedPongs : 2;
+        }
+
+        /**
+         * How long before a session's token expires to send the expiry warning.
+         */
+        public int effectiveTokenExpiryWarningSeconds() {
+            return tokenExpiryWarningSeconds > 0 ? tokenExpiryWarningSeconds : 60;
+        }
+
+        public int effectiveMaxQueuedMessages() {
+            return maxQueuedMessages > 0 ? maxQueuedMessages : 256;
+        }
+
+        public int effectiveWriteBufferLowWaterMark() {
+            return writeBufferLowWaterMark > 0 ? writeBufferLowWaterMark : 32 * 1024;
+        }
+
+        public int effectiveWriteBufferHighWaterMark() {
+            return Math.max(effectiveWriteBufferLowWaterMark(),
+                    writeBufferHighWaterMark > 0 ? writeBufferHighWaterMark : 128 * 1024);
+        }
     }
 
     /**
@@ -253,12 +589,14 @@ public record ApiConfig(
                 "0.0.0.0",
                 TlsConfig.defaults(),
                 JwtConfig.defaults(),
+                AuthConfig.defaults(),
                 List.of(new ClientConfig(
                         "admin",
                         "$2a$12$CHANGE_THIS_HASH_BEFORE_USE", // Generate with: htpasswd -bnBC 12 "" yourpassword | tr -d ':'
                         "Default admin client",
                         Set.of("api.*"),
-                        true
+                        true,
+                        null  // default per-client quota
                 )),
                 RateLimitConfig.defaults(),
                 CorsConfig.defaults(),
@@ -277,6 +615,7 @@ public record ApiConfig(
                 bindAddress != null ? bindAddress : "0.0.0.0",
                 tls != null ? tls : TlsConfig.defaults(),
                 jwt != null ? jwt : JwtConfig.defaults(),
+                auth != null ? auth : AuthConfig.defaults(),
                 clients != null ? clients : List.of(),
                 rateLimits != null ? rateLimits : RateLimitConfig.defaults(),
                 cors != null ? cors : CorsConfig.defaults(),
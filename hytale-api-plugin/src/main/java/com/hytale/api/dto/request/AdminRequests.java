@@ -53,4 +53,18 @@ public final class AdminRequests {
             return message != null && !message.isBlank();
         }
     }
+
+    /**
+     * Request to revoke issued tokens, either one token by ID or all of a client's tokens.
+     */
+    public record RevokeRequest(String tokenId, String clientId) {
+        public boolean isValid() {
+            return (tokenId != null && !tokenId.isBlank())
+                    || (clientId != null && !clientId.isBlank());
+        }
+
+        public boolean isSingleToken() {
+            return tokenId != null && !tokenId.isBlank();
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package com.hytale.api.dto.request;
+
+/**
+ * Request body for refresh token renewal.
+ */
+public record RefreshRequest(
+        String refreshToken
+) {
+    public boolean isValid() {
+        return refreshToken != null && !refreshToken.isBlank();
+    }
+}
@@ -1,7 +1,12 @@
 package com.hytale.api.dto.response;
 
+import com.hytale.api.ratelimit.AdaptiveConcurrencyLimiter;
+import com.hytale.api.ratelimit.RateLimiter;
+import com.hytale.api.websocket.WebSocketCompression;
+
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -115,6 +120,55 @@ public final class ApiResponses {
             String message
     ) {}
 
+    /**
+     * Token revocation list summary.
+     *
+     * @param clientCutoffs issued-before cutoff (epoch millis) by client ID
+     */
+    public record RevocationsResponse(
+            int revokedTokens,
+            Map<String, Long> clientCutoffs
+    ) {}
+
+    /**
+     * Rate limiter diagnostics.
+     *
+     * @param concurrency adaptive in-flight limit state, or null when disabled
+     */
+    public record RateLimitDiagnosticsResponse(
+            RateLimiter.Stats buckets,
+            AdaptiveConcurrencyLimiter.Status concurrency
+    ) {}
+
+    /**
+     * Active WebSocket sessions.
+     *
+     * @param compression permessage-deflate counters for all sessions since start, or null when disabled
+     */
+    public record WebSocketSessionsResponse(
+            int count,
+            WebSocketCompression.Stats compression,
+            List<WebSocketSessionInfo> sessions
+    ) {}
+
+    /**
+     * One WebSocket session's subscriptions, outbound queue state, latency and compression counters.
+     *
+     * @param queued  events waiting for the client to catch up
+     * @param dropped events lost to the subscriptions' overflow policies
+     * @param rttMillis round trip of the last answered server ping, or -1 if none yet
+     */
+    public record WebSocketSessionInfo(
+            String clientId,
+            String remoteAddress,
+            Set<String> subscriptions,
+            int queued,
+            long dropped,
+            long connectedAt,
+            double rttMillis,
+            WebSocketCompression.Stats compression
+    ) {}
+
     /**
      * Generic success response.
      */
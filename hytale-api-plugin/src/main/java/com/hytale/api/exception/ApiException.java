@@ -14,6 +14,7 @@ public sealed abstract class ApiException extends RuntimeException
                 ApiException.NotFound,
                 ApiException.NotImplemented,
                 ApiException.RateLimited,
+                ApiException.ServiceUnavailable,
                 ApiException.InternalError {
 
     private final transient HttpResponseStatus status;
@@ -248,6 +249,32 @@ public sealed abstract class ApiException extends RuntimeException
         }
     }
 
+    /**
+     * 503 Service Unavailable - Server is shedding load.
+     */
+    public static final class ServiceUnavailable extends ApiException {
+        private final long retryAfterSeconds;
+
+        public ServiceUnavailable(String errorCode, String message, long retryAfterSeconds) {
+            super(HttpResponseStatus.SERVICE_UNAVAILABLE, errorCode, message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long retryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public static ServiceUnavailable overloaded() {
+            return new ServiceUnavailable("OVERLOADED",
+                    "Server is busy. Retry shortly", 1);
+        }
+
+        public static ServiceUnavailable tooManyInFlight(int limit) {
+            return new ServiceUnavailable("TOO_MANY_IN_FLIGHT",
+                    "At most %d requests may be in flight per session".formatted(limit), 1);
+        }
+    }
+
     /**
      * 500 Internal Server Error - Unexpected server error.
      */
@@ -1,10 +1,18 @@
 package com.hytale.api.http;
 
 import com.hytale.api.config.ApiConfig;
+import com.hytale.api.ratelimit.AdaptiveConcurrencyLimiter;
+import com.hytale.api.ratelimit.ClientRateLimiter;
 import com.hytale.api.ratelimit.RateLimitMiddleware;
 import com.hytale.api.ratelimit.RateLimiter;
+import com.hytale.api.ratelimit.SharedBucketTable;
+import com.hytale.api.security.ClientCertificateAuthenticator;
+import com.hytale.api.security.CredentialVerifier;
+import com.hytale.api.security.RevocationStore;
 import com.hytale.api.security.TokenGenerator;
 import com.hytale.api.websocket.WebSocketHandler;
+import com.hytale.api.websocket.WebSocketKeepAlive;
+import com.hytale.api.websocket.WebSocketMessageLimit;
 import com.hytale.api.websocket.WebSocketSessionManager;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -12,6 +20,7 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.ssl.ClientAuth;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.stream.ChunkedWriteHandler;
@@ -30,18 +39,23 @@ public final class ApiChannelInitializer extends ChannelInitializer<SocketChanne
     private static final Logger LOGGER = Logger.getLogger(ApiChannelInitializer.class.getName());
 
     private static final int MAX_CONTENT_LENGTH = 1024 * 1024; // 1MB
+    private static final int MAX_WS_MESSAGE_BYTES = 64 * 1024; // after decompression
     private static final int IDLE_TIMEOUT_SECONDS = 60;
 
     private final ApiConfig config;
     private final SslContext sslContext;
     private final RateLimiter rateLimiter;
     private final TokenGenerator tokenGenerator;
+    private final CredentialVerifier credentialVerifier;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
     private final WebSocketSessionManager wsSessionManager;
 
     // Sharable handlers
+    private final ClientCertificateAuthenticator clientCertAuthenticator;
     private final RateLimitMiddleware rateLimitMiddleware;
     private final HttpRequestRouter httpRouter;
     private final WebSocketHandler webSocketHandler;
+    private final WebSocketKeepAlive wsKeepAlive;
 
     public ApiChannelInitializer(
             ApiConfig config,
@@ -60,28 +74,54 @@ public final class ApiChannelInitializer extends ChannelInitializer<SocketChanne
                 LOGGER.warning("TLS certificate files not found, TLS disabled");
                 this.sslContext = null;
             } else {
-                this.sslContext = SslContextBuilder.forServer(certFile, keyFile)
-                        .build();
+                SslContextBuilder builder = SslContextBuilder.forServer(certFile, keyFile);
+                if (config.tls().isMutual()) {
+                    File caFile = pluginDataPath.resolve(config.tls().clientCaPath()).toFile();
+                    builder.trustManager(caFile)
+                            .clientAuth(config.tls().requireClientCert() ? ClientAuth.REQUIRE : ClientAuth.OPTIONAL);
+                    LOGGER.info("Mutual TLS enabled with client CA: " + caFile);
+                }
+                this.sslContext = builder.build();
                 LOGGER.info("TLS enabled with certificate: " + certFile);
             }
         } else {
             this.sslContext = null;
         }
-
-        // Initialize rate limiter
-        this.rateLimiter = new RateLimiter(config.rateLimits());
-        this.rateLimitMiddleware = new RateLimitMiddleware(rateLimiter);
+        this.clientCertAuthenticator = sslContext != null && config.tls().isMutual()
+                ? new ClientCertificateAuthenticator(config)
+                : null;
+
+        // Initialize rate limiter, sharing buckets with other processes if configured
+        var sharedState = config.rateLimits().sharedState();
+        SharedBucketTable sharedBuckets = sharedState != null && sharedState.isEnabled()
+                ? SharedBucketTable.open(pluginDataPath.resolve(sharedState.path()), sharedState.effectiveSlots())
+                : null;
+        this.rateLimiter = new RateLimiter(config.rateLimits(), sharedBuckets);
+        this.rateLimitMiddleware = new RateLimitMiddleware(rateLimiter, config.cors());
+        this.concurrencyLimiter = config.rateLimits().effectiveConcurrency().enabled()
+                ? new AdaptiveConcurrencyLimiter(config.rateLimits().effectiveConcurrency())
+                : null;
+
+        // bcrypt checks run on their own bounded pool, never on the event loop
+        this.credentialVerifier = new CredentialVerifier(config.auth());
 
         // Initialize WebSocket manager
         this.wsSessionManager = new WebSocketSessionManager(config.websocket());
+        RevocationStore revocations = tokenGenerator.getRevocationStore();
+        revocations.onRevoke(() -> wsSessionManager.closeRevoked(revocations));
 
         // Initialize routers (sharable) - server root is parent of mods folder
         // Must use toAbsolutePath() first to normalize the path before getting parents
         Path absolutePluginPath = pluginDataPath.toAbsolutePath();
         Path modsFolder = absolutePluginPath.getParent();
         Path serverRoot = modsFolder != null ? modsFolder.getParent() : absolutePluginPath;
-        this.httpRouter = new HttpRequestRouter(config, tokenGenerator, serverRoot);
-        this.webSocketHandler = new WebSocketHandler(config, tokenGenerator, wsSessionManager);
+        this.httpRouter = new HttpRequestRouter(config, tokenGenerator, credentialVerifier, rateLimiter,
+                new ClientRateLimiter(config, sharedBuckets), concurrencyLimiter, wsSessionManager, serverRoot);
+        this.webSocketHandler = new WebSocketHandler(config, tokenGenerator, wsSessionManager, httpRouter);
+        this.wsKeepAlive = config.websocket().pingIntervalSeconds() > 0
+                ? new WebSocketKeepAlive(config.websocket().pingIntervalSeconds(),
+                        config.websocket().effectiveMaxMissedPongs())
+                : null;
     }
 
     @Override
@@ -91,6 +131,9 @@ public final class ApiChannelInitializer extends ChannelInitializer<SocketChanne
         // TLS first if enabled
         if (sslContext != null) {
             pipeline.addLast("ssl", sslContext.newHandler(ch.alloc()));
+            if (clientCertAuthenticator != null) {
+                pipeline.addLast("clientCert", clientCertAuthenticator);
+            }
         }
 
         // Idle timeout handler
@@ -111,14 +154,23 @@ public final class ApiChannelInitializer extends ChannelInitializer<SocketChanne
 
         // WebSocket protocol handler (handles upgrade)
         if (config.websocket().enabled()) {
+            // permessage-deflate, negotiated during the upgrade
+            if (wsSessionManager.getCompression() != null) {
+                wsSessionManager.getCompression().addTo(pipeline);
+            }
+            pipeline.addLast("wsMessageLimit", new WebSocketMessageLimit(MAX_WS_MESSAGE_BYTES));
             pipeline.addLast("wsProtocol", new WebSocketServerProtocolHandler(
                     config.websocket().path(),
                     null, // subprotocols
                     true, // allow extensions
                     65536, // max frame size
                     false, // allow mask mismatch (for debugging)
-                    true   // check starting request
+                    true,  // check starting request
+                    false  // pass pongs on for liveness tracking
             ));
+            if (wsKeepAlive != null) {
+                pipeline.addLast("wsKeepAlive", wsKeepAlive);
+            }
             pipeline.addLast("wsHandler", webSocketHandler);
         }
 
@@ -139,4 +191,16 @@ public final class ApiChannelInitializer extends ChannelInitializer<SocketChanne
     public RateLimiter getRateLimiter() {
         return rateLimiter;
     }
+
+    /**
+     * Release resources owned by the pipeline handlers.
+     */
+    public void shutdown() {
+        webSocketHandler.shutdown();
+        credentialVerifier.shutdown();
+        rateLimiter.shutdown();
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.shutdown();
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.hytale.api.http;
+
+import com.hytale.api.config.ApiConfig.CorsConfig;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+
+/**
+ * Adds the configured CORS headers to a response.
+ * Shared by every handler that writes HTTP responses itself.
+ */
+public final class CorsHeaders {
+    private CorsHeaders() {}
+
+    public static void apply(CorsConfig cors, HttpResponse response, HttpRequest request) {
+        String origin = request.headers().get(HttpHeaderNames.ORIGIN);
+        if (origin != null && cors.isOriginAllowed(origin)) {
+            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+        } else if (cors.allowedOrigins().contains("*")) {
+            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        }
+
+        response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS,
+                String.join(", ", cors.allowedMethods()));
+        response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS,
+                String.join(", ", cors.allowedHeaders()));
+
+        if (!cors.exposedHeaders().isEmpty()) {
+            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_EXPOSE_HEADERS,
+                    String.join(", ", cors.exposedHeaders()));
+        }
+
+        if (cors.allowCredentials()) {
+            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+        }
+
+        response.headers().set(HttpHeaderNames.ACCESS_CONTROL_MAX_AGE, cors.maxAge());
+    }
+}
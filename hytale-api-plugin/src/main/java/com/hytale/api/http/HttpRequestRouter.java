@@ -3,20 +3,33 @@ package com.hytale.api.http;
 import com.hytale.api.config.ApiConfig;
 import com.hytale.api.exception.ApiException;
 import com.hytale.api.http.handlers.*;
+import com.hytale.api.ratelimit.AdaptiveConcurrencyLimiter;
+import com.hytale.api.ratelimit.ClientRateLimiter;
 import com.hytale.api.ratelimit.RateLimitMiddleware;
+import com.hytale.api.ratelimit.RateLimiter;
+import com.hytale.api.ratelimit.RateLimiter.RateLimitResult;
+import com.hytale.api.security.ClientCertificateAuthenticator;
 import com.hytale.api.security.ClientIdentity;
+import com.hytale.api.security.CredentialVerifier;
+import com.hytale.api.security.RevocationStore;
 import com.hytale.api.security.TokenGenerator;
 import com.hytale.api.security.TokenGenerator.ValidatedToken;
+import com.hytale.api.security.VerifiedTokenCache;
+import com.hytale.api.websocket.WebSocketSessionManager;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.AttributeKey;
 
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -68,12 +81,23 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
     private static final Pattern SERVER_PERMISSIONS_OP = Pattern.compile("^/server/permissions/op$");
     private static final Pattern SERVER_PERMISSIONS_OP_PLAYER = Pattern.compile("^/server/permissions/op/(.+)$");
 
+    /**
+     * Bearer token the channel's bound {@link ClientIdentity} was resolved from.
+     */
+    private static final AttributeKey<String> BOUND_TOKEN_KEY = AttributeKey.valueOf("api.client.token");
+
     private final ApiConfig config;
     private final TokenGenerator tokenGenerator;
+    private final VerifiedTokenCache tokenCache;
+    private final RevocationStore revocations;
+    private final RateLimiter rateLimiter;
+    private final ClientRateLimiter clientRateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
     // Handlers
     private final HealthHandler healthHandler;
     private final AuthHandler authHandler;
+    private final JwksHandler jwksHandler;
     private final StatusHandler statusHandler;
     private final PlayersHandler playersHandler;
     private final WorldsHandler worldsHandler;
@@ -88,14 +112,32 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
     private final ServerExtendedHandler serverExtendedHandler;
     private final ChatHandler chatHandler;
     private final PermissionsHandler permissionsHandler;
-
-    public HttpRequestRouter(ApiConfig config, TokenGenerator tokenGenerator, java.nio.file.Path serverRoot) {
+    private final RevocationHandler revocationHandler;
+    private final RateLimitHandler rateLimitHandler;
+    private final WebSocketStatsHandler webSocketStatsHandler;
+
+    public HttpRequestRouter(
+            ApiConfig config,
+            TokenGenerator tokenGenerator,
+            CredentialVerifier credentialVerifier,
+            RateLimiter rateLimiter,
+            ClientRateLimiter clientRateLimiter,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            WebSocketSessionManager wsSessionManager,
+            java.nio.file.Path serverRoot
+    ) {
         this.config = config;
         this.tokenGenerator = tokenGenerator;
+        this.tokenCache = tokenGenerator.getVerifiedTokenCache();
+        this.revocations = tokenGenerator.getRevocationStore();
+        this.rateLimiter = rateLimiter;
+        this.clientRateLimiter = clientRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
 
         // Initialize handlers
         this.healthHandler = new HealthHandler();
-        this.authHandler = new AuthHandler(config, tokenGenerator);
+        this.authHandler = new AuthHandler(config, tokenGenerator, credentialVerifier);
+        this.jwksHandler = new JwksHandler(tokenGenerator);
         this.statusHandler = new StatusHandler();
         this.playersHandler = new PlayersHandler();
         this.worldsHandler = new WorldsHandler();
@@ -110,6 +152,9 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
         this.chatHandler = new ChatHandler();
         this.permissionsHandler = new PermissionsHandler(serverRoot, adminHandler);
         this.playerExtendedHandler = new PlayerExtendedHandler(permissionsHandler, adminHandler);
+        this.revocationHandler = new RevocationHandler(config, tokenGenerator);
+        this.rateLimitHandler = new RateLimitHandler(rateLimiter, concurrencyLimiter);
+        this.webSocketStatsHandler = new WebSocketStatsHandler(wsSessionManager);
     }
 
     @Override
@@ -119,6 +164,8 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
 
         LOGGER.fine(() -> "Request: %s %s".formatted(method, path));
 
+        boolean admitted = false;
+        long admittedAt = 0;
         try {
             // Handle CORS preflight
             if (method == HttpMethod.OPTIONS) {
@@ -126,6 +173,34 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
                 return;
             }
 
+            // Shed load past the adaptive in-flight limit; health checks always pass
+            if (concurrencyLimiter != null && !path.equals("/health")) {
+                if (!concurrencyLimiter.tryAcquire()) {
+                    throw ApiException.ServiceUnavailable.overloaded();
+                }
+                admitted = true;
+                admittedAt = System.nanoTime();
+            }
+
+            // Credential checks complete on the verifier pool
+            if (path.equals("/auth/token") && method == HttpMethod.POST) {
+                CompletableFuture<String> result = authHandler.handle(request);
+                if (admitted) {
+                    // The slot is held until the verifier finishes; bcrypt's deliberate
+                    // cost is kept out of the latency signal
+                    admitted = false;
+                    result = result.whenComplete((response, error) -> concurrencyLimiter.release());
+                }
+                sendAsyncResponse(ctx, result, request);
+                return;
+            }
+
+            // Public key set, cacheable by token verifiers
+            if (path.equals(JwksHandler.PATH) && method == HttpMethod.GET) {
+                sendResponse(ctx, HttpResponseStatus.OK, jwksHandler.handle(request), request, JwksHandler.CACHE_CONTROL);
+                return;
+            }
+
             // Route request
             String response = route(ctx, request, method, path);
 
@@ -138,6 +213,10 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Unexpected error handling request", e);
             sendErrorResponse(ctx, new ApiException.InternalError("Internal server error"), request);
+        } finally {
+            if (admitted) {
+                concurrencyLimiter.release(admittedAt);
+            }
         }
     }
 
@@ -150,12 +229,60 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
             return healthHandler.handle(request);
         }
 
-        if (path.equals("/auth/token") && method == HttpMethod.POST) {
-            return authHandler.handle(request);
+        if (path.equals("/auth/refresh") && method == HttpMethod.POST) {
+            return authHandler.handleRefresh(request);
         }
 
         // Protected endpoints - require authentication
-        ClientIdentity identity = authenticate(request);
+        ClientIdentity identity = authenticate(ctx.channel(), request);
+        acquireClientQuota(ctx.channel(), identity, path);
+        return routeAuthenticated(request, method, path, identity);
+    }
+
+    /**
+     * Handle a request sent as a WebSocket message by an authenticated session.
+     * Goes through the same load shedding, per-IP and client limits, routes and
+     * permission checks as HTTP; only the public and token endpoints are not reachable.
+     *
+     * @return the JSON response body
+     * @throws ApiException as the same request over HTTP would
+     */
+    public String dispatch(Channel channel, ClientIdentity identity, FullHttpRequest request) {
+        String path = getPath(request.uri());
+
+        boolean admitted = false;
+        try {
+            // Admission only: slow socket RPCs should not cut the limit for HTTP traffic;
+            // world-thread overload still shows up in the tick probe
+            if (concurrencyLimiter != null) {
+                if (!concurrencyLimiter.tryAcquire()) {
+                    throw ApiException.ServiceUnavailable.overloaded();
+                }
+                admitted = true;
+            }
+
+            // The session outlives the token it authenticated with
+            if (identity.isExpired()) {
+                throw ApiException.Unauthorized.expiredToken();
+            }
+            if (revocations.isRevoked(identity)) {
+                throw ApiException.Unauthorized.invalidToken("Token revoked");
+            }
+
+            acquireSocketQuota(channel, identity, path);
+            return routeAuthenticated(request, request.method(), path, identity);
+        } finally {
+            if (admitted) {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    /**
+     * Route a request from an authenticated client.
+     */
+    private String routeAuthenticated(FullHttpRequest request, HttpMethod method, String path,
+                                      ClientIdentity identity) {
 
         // Server status
         if (path.equals("/server/status") && method == HttpMethod.GET) {
@@ -177,6 +304,16 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
             return serverExtendedHandler.handleMetrics(request, identity);
         }
 
+        // Rate limiter diagnostics
+        if (path.equals("/server/ratelimits") && method == HttpMethod.GET) {
+            return rateLimitHandler.handle(request, identity);
+        }
+
+        // WebSocket session diagnostics
+        if (path.equals("/server/websockets") && method == HttpMethod.GET) {
+            return webSocketStatsHandler.handle(request, identity);
+        }
+
         // Server plugins
         if (path.equals("/server/plugins") && method == HttpMethod.GET) {
             return serverExtendedHandler.handlePlugins(request, identity);
@@ -397,6 +534,14 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
             return chatHandler.handleMute(request, identity, chatMuteMatcher.group(1));
         }
 
+        // Token revocation
+        if (path.equals("/admin/revoke") && method == HttpMethod.POST) {
+            return revocationHandler.handleRevoke(request, identity);
+        }
+        if (path.equals("/admin/revocations") && method == HttpMethod.GET) {
+            return revocationHandler.handleList(request, identity);
+        }
+
         // Admin endpoints
         Matcher adminMatcher = ADMIN_PATTERN.matcher(path);
         if (adminMatcher.matches() && method == HttpMethod.POST) {
@@ -408,13 +553,58 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
         throw ApiException.NotFound.endpoint(path);
     }
 
+    /**
+     * Charge the route's cost against the authenticated client's quota.
+     * Headers report whichever of the IP and client limits is closer to running out.
+     */
+    private void acquireClientQuota(Channel channel, ClientIdentity identity, String path) {
+        RateLimitResult result = clientRateLimiter.tryAcquire(identity.clientId(), path);
+        var attr = channel.attr(RateLimitMiddleware.RESULT_KEY);
+        attr.set(RateLimitResult.tighter(attr.get(), result));
+
+        if (result.isLimited()) {
+            LOGGER.fine(() -> "Rate limited client: " + identity.clientId() + " on " + path);
+            throw new ApiException.RateLimited(result.retryAfterSeconds());
+        }
+    }
+
+    /**
+     * Charge a socket request against the per-IP limit its upgrade was subject to,
+     * then the client's quota. Nothing is stored on the channel: socket responses
+     * carry no rate limit headers, and a session's requests run concurrently.
+     */
+    private void acquireSocketQuota(Channel channel, ClientIdentity identity, String path) {
+        String clientIp = channel.attr(RateLimitMiddleware.CLIENT_IP_KEY).get();
+        if (clientIp != null) {
+            RateLimitResult ipResult = rateLimiter.tryAcquire(clientIp, path);
+            if (ipResult.isLimited()) {
+                LOGGER.fine(() -> "Rate limited: " + clientIp + " on " + path);
+                throw new ApiException.RateLimited(ipResult.retryAfterSeconds());
+            }
+        }
+
+        RateLimitResult result = clientRateLimiter.tryAcquire(identity.clientId(), path);
+        if (result.isLimited()) {
+            LOGGER.fine(() -> "Rate limited client: " + identity.clientId() + " on " + path);
+            throw new ApiException.RateLimited(result.retryAfterSeconds());
+        }
+    }
+
     /**
      * Authenticate request and return client identity.
+     * The identity is bound to the channel so later requests on a keep-alive
+     * connection presenting the same token skip validation entirely. Requests
+     * without a token fall back to the mutual-TLS identity, if any.
      */
-    private ClientIdentity authenticate(FullHttpRequest request) {
+    private ClientIdentity authenticate(Channel channel, FullHttpRequest request) {
         String authHeader = request.headers().get(HttpHeaderNames.AUTHORIZATION);
 
         if (authHeader == null || authHeader.isBlank()) {
+            // Connection authenticated by client certificate during the TLS handshake
+            ClientIdentity peer = channel.attr(ClientCertificateAuthenticator.PEER_IDENTITY_KEY).get();
+            if (peer != null && !peer.isExpired() && !revocations.isRevoked(peer)) {
+                return peer;
+            }
             throw ApiException.Unauthorized.missingToken();
         }
 
@@ -425,22 +615,53 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
 
         String token = authHeader.substring(7);
 
+        // Fastest path: connection already authenticated with this token
+        ClientIdentity bound = channel.attr(ClientIdentity.ATTR_KEY).get();
+        if (bound != null && token.equals(channel.attr(BOUND_TOKEN_KEY).get())) {
+            if (!bound.isExpired() && !revocations.isRevoked(bound)) {
+                return bound;
+            }
+            unbind(channel);
+        }
+
+        // Fast path: token was already verified and has not expired
+        ClientIdentity cached = tokenCache.get(token);
+        if (cached != null && !revocations.isRevoked(cached)) {
+            return bind(channel, token, cached);
+        }
+
         // Validate token
         ValidatedToken result = tokenGenerator.validateToken(token);
 
         return switch (result) {
-            case ValidatedToken.Valid valid -> new ClientIdentity(
-                    valid.clientId(),
-                    valid.permissions(),
-                    Instant.now(),
-                    valid.expiry(),
-                    valid.tokenId()
-            );
+            case ValidatedToken.Valid valid -> {
+                if (tokenGenerator.isRevoked(valid)) {
+                    throw ApiException.Unauthorized.invalidToken("Token revoked");
+                }
+                yield bind(channel, token, tokenCache.put(token, ClientIdentity.from(valid)));
+            }
             case ValidatedToken.Invalid invalid -> throw ApiException.Unauthorized.invalidToken(invalid.reason());
             case ValidatedToken.Expired expired -> throw ApiException.Unauthorized.expiredToken();
         };
     }
 
+    /**
+     * Bind an authenticated identity to the channel.
+     */
+    private ClientIdentity bind(Channel channel, String token, ClientIdentity identity) {
+        channel.attr(ClientIdentity.ATTR_KEY).set(identity);
+        channel.attr(BOUND_TOKEN_KEY).set(token);
+        return identity;
+    }
+
+    /**
+     * Remove a stale identity binding from the channel.
+     */
+    private void unbind(Channel channel) {
+        channel.attr(ClientIdentity.ATTR_KEY).set(null);
+        channel.attr(BOUND_TOKEN_KEY).set(null);
+    }
+
     /**
      * Handle CORS preflight request.
      */
@@ -452,7 +673,35 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
 
         addCorsHeaders(response, request);
 
-        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        writeResponse(ctx, response, request);
+    }
+
+    /**
+     * Send the response once a handler running off the event loop completes.
+     * Reading is paused meanwhile so pipelined requests are answered in order.
+     */
+    private void sendAsyncResponse(ChannelHandlerContext ctx, CompletableFuture<String> result,
+                                   FullHttpRequest request) {
+        ctx.channel().config().setAutoRead(false);
+        result.whenComplete((response, error) -> ctx.executor().execute(() -> {
+            try {
+                if (error == null) {
+                    sendResponse(ctx, HttpResponseStatus.OK, response, request);
+                } else if (unwrap(error) instanceof ApiException e) {
+                    LOGGER.log(Level.FINE, "API error: " + e.getMessage(), e);
+                    sendErrorResponse(ctx, e, request);
+                } else {
+                    LOGGER.log(Level.WARNING, "Unexpected error handling request", error);
+                    sendErrorResponse(ctx, new ApiException.InternalError("Internal server error"), request);
+                }
+            } finally {
+                ctx.channel().config().setAutoRead(true);
+            }
+        }));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     /**
@@ -460,6 +709,14 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
      */
     private void sendResponse(ChannelHandlerContext ctx, HttpResponseStatus status,
                               String body, FullHttpRequest request) {
+        sendResponse(ctx, status, body, request, null);
+    }
+
+    /**
+     * Send successful JSON response with an optional Cache-Control header.
+     */
+    private void sendResponse(ChannelHandlerContext ctx, HttpResponseStatus status,
+                              String body, FullHttpRequest request, String cacheControl) {
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
 
         FullHttpResponse response = new DefaultFullHttpResponse(
@@ -470,16 +727,16 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
 
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8");
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, bytes.length);
+        if (cacheControl != null) {
+            response.headers().set(HttpHeaderNames.CACHE_CONTROL, cacheControl);
+        }
 
         // Add rate limit headers
-        Integer remaining = ctx.channel().attr(RateLimitMiddleware.REMAINING_TOKENS_KEY).get();
-        if (remaining != null) {
-            response.headers().set("X-RateLimit-Remaining", remaining);
-        }
+        RateLimitMiddleware.addHeaders(response.headers(), ctx.channel().attr(RateLimitMiddleware.RESULT_KEY).get());
 
         addCorsHeaders(response, request);
 
-        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        writeResponse(ctx, response, request);
     }
 
     /**
@@ -497,44 +754,37 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8");
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, bytes.length);
 
-        // Add retry-after for rate limiting
+        // Add retry-after for rate limiting and load shedding
         if (error instanceof ApiException.RateLimited rateLimited) {
+            RateLimitMiddleware.addHeaders(response.headers(), ctx.channel().attr(RateLimitMiddleware.RESULT_KEY).get());
             response.headers().set("Retry-After", rateLimited.retryAfterSeconds());
+        } else if (error instanceof ApiException.ServiceUnavailable unavailable) {
+            response.headers().set("Retry-After", unavailable.retryAfterSeconds());
         }
 
         addCorsHeaders(response, request);
 
-        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        writeResponse(ctx, response, request);
     }
 
     /**
-     * Add CORS headers to response.
+     * Write response, keeping the connection open if the client asked for keep-alive.
      */
-    private void addCorsHeaders(FullHttpResponse response, FullHttpRequest request) {
-        var cors = config.cors();
-
-        String origin = request.headers().get(HttpHeaderNames.ORIGIN);
-        if (origin != null && cors.isOriginAllowed(origin)) {
-            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
-        } else if (cors.allowedOrigins().contains("*")) {
-            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
-        }
-
-        response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS,
-                String.join(", ", cors.allowedMethods()));
-        response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS,
-                String.join(", ", cors.allowedHeaders()));
-
-        if (!cors.exposedHeaders().isEmpty()) {
-            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_EXPOSE_HEADERS,
-                    String.join(", ", cors.exposedHeaders()));
-        }
+    private void writeResponse(ChannelHandlerContext ctx, FullHttpResponse response, FullHttpRequest request) {
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        HttpUtil.setKeepAlive(response, keepAlive);
 
-        if (cors.allowCredentials()) {
-            response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
         }
+    }
 
-        response.headers().set(HttpHeaderNames.ACCESS_CONTROL_MAX_AGE, cors.maxAge());
+    /**
+     * Add CORS headers to response.
+     */
+    private void addCorsHeaders(FullHttpResponse response, FullHttpRequest request) {
+        CorsHeaders.apply(config.cors(), response, request);
     }
 
     /**
@@ -545,6 +795,19 @@ public final class HttpRequestRouter extends SimpleChannelInboundHandler<FullHtt
         return queryStart > 0 ? uri.substring(0, queryStart) : uri;
     }
 
+    /**
+     * Close idle keep-alive HTTP connections.
+     * Upgraded WebSocket channels no longer have an HTTP codec and are left alone.
+     */
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent && ctx.pipeline().get(HttpServerCodec.class) != null) {
+            ctx.close();
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         LOGGER.log(Level.WARNING, "Channel exception", cause);
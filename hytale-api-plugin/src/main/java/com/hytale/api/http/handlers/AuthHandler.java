@@ -4,17 +4,22 @@ import com.google.gson.Gson;
 import com.hytale.api.config.ApiConfig;
 import com.hytale.api.config.ApiConfig.ClientConfig;
 import com.hytale.api.dto.request.AuthRequest;
+import com.hytale.api.dto.request.RefreshRequest;
 import com.hytale.api.exception.ApiException;
+import com.hytale.api.security.CredentialVerifier;
+import com.hytale.api.security.RefreshTokenStore;
+import com.hytale.api.security.RefreshTokenStore.Redemption;
 import com.hytale.api.security.TokenGenerator;
 import io.netty.handler.codec.http.FullHttpRequest;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
- * Handler for POST /auth/token endpoint.
- * Validates client credentials and returns JWT token.
+ * Handler for POST /auth/token and POST /auth/refresh endpoints.
+ * Validates client credentials and returns JWT token; refresh tokens
+ * mint new access tokens without repeating the bcrypt check.
  */
 public final class AuthHandler {
     private static final Logger LOGGER = Logger.getLogger(AuthHandler.class.getName());
@@ -22,13 +27,22 @@ public final class AuthHandler {
 
     private final ApiConfig config;
     private final TokenGenerator tokenGenerator;
+    private final RefreshTokenStore refreshTokens;
+    private final CredentialVerifier credentialVerifier;
 
-    public AuthHandler(ApiConfig config, TokenGenerator tokenGenerator) {
+    public AuthHandler(ApiConfig config, TokenGenerator tokenGenerator, CredentialVerifier credentialVerifier) {
         this.config = config;
         this.tokenGenerator = tokenGenerator;
+        this.credentialVerifier = credentialVerifier;
+        this.refreshTokens = tokenGenerator.getRefreshTokenStore();
     }
 
-    public String handle(FullHttpRequest request) {
+    /**
+     * Validate credentials on the verifier pool and issue tokens.
+     * The request body is read before returning, so the request may be released
+     * once this method returns.
+     */
+    public CompletableFuture<String> handle(FullHttpRequest request) {
         // Parse request body
         String body = request.content().toString(StandardCharsets.UTF_8);
         AuthRequest authRequest;
@@ -51,40 +65,70 @@ public final class AuthHandler {
         }
 
         // Verify password
-        if (!verifyPassword(authRequest.secret(), client.secret())) {
-            LOGGER.warning("Auth attempt with invalid secret for client: " + authRequest.clientId() + " " + authRequest.secret());
-            LOGGER.warning("Stored hash: " + client.secret());
-            throw ApiException.Unauthorized.invalidCredentials();
-        }
-
-        // Generate token
-        LOGGER.info("Successful authentication for client: " + authRequest.clientId());
-        var tokenResult = tokenGenerator.generateAccessToken(client);
+        return credentialVerifier.verify(client.id(), authRequest.secret(), client.secret())
+                .thenApply(ok -> {
+                    if (!ok) {
+                        LOGGER.warning("Auth attempt with invalid secret for client: " + client.id());
+                        throw ApiException.Unauthorized.invalidCredentials();
+                    }
 
-        return tokenResult.toJson();
+                    // Generate token
+                    LOGGER.info("Successful authentication for client: " + client.id());
+                    return issueTokens(client);
+                });
     }
 
     /**
-     * Verify password against bcrypt hash using jBCrypt.
-     * Compatible with hashes from htpasswd, bcryptjs, etc.
+     * Exchange a refresh token for a new access token and a rotated refresh token.
      */
-    private boolean verifyPassword(String password, String storedHash) {
-        if (password == null || storedHash == null) {
-            return false;
+    public String handleRefresh(FullHttpRequest request) {
+        if (!refreshTokens.isEnabled()) {
+            throw ApiException.NotFound.endpoint("/auth/refresh");
         }
 
+        String body = request.content().toString(StandardCharsets.UTF_8);
+        RefreshRequest refreshRequest;
+
         try {
-            // Only accept bcrypt hashes for security
-            if (!storedHash.startsWith("$2")) {
-                LOGGER.warning("Invalid password hash format - must be bcrypt");
-                return false;
-            }
-            
-            // jBCrypt.checkpw handles $2a$, $2b$, $2y$ prefixes
-            return BCrypt.checkpw(password, storedHash);
+            refreshRequest = GSON.fromJson(body, RefreshRequest.class);
         } catch (Exception e) {
-            LOGGER.warning("Password verification failed: " + e.getMessage());
-            return false;
+            throw ApiException.BadRequest.invalidJson(e.getMessage());
+        }
+
+        if (refreshRequest == null || !refreshRequest.isValid()) {
+            throw ApiException.BadRequest.missingField("refreshToken required");
+        }
+
+        Redemption redemption = refreshTokens.redeem(refreshRequest.refreshToken(), clientId -> {
+            // Client may have been disabled or had permissions changed since login
+            ClientConfig client = config.findClient(clientId);
+            if (client == null) {
+                throw ApiException.Unauthorized.invalidToken("Client no longer enabled");
+            }
+            return tokenGenerator.generateAccessToken(client);
+        });
+
+        return switch (redemption) {
+            case Redemption.Valid valid ->
+                    valid.accessToken().toJson(valid.refreshToken(), refreshTokens.validitySeconds());
+            case Redemption.Invalid invalid -> throw ApiException.Unauthorized.invalidToken(invalid.reason());
+            case Redemption.Replayed replayed -> {
+                LOGGER.warning("Refresh token reuse detected for client: " + replayed.clientId());
+                replayed.revokedAccessTokens().forEach(tokenGenerator::revokeToken);
+                throw ApiException.Unauthorized.invalidToken("Refresh token already used");
+            }
+        };
+    }
+
+    /**
+     * Generate an access token, plus the first refresh token of a new family when enabled.
+     */
+    private String issueTokens(ClientConfig client) {
+        var tokenResult = tokenGenerator.generateAccessToken(client);
+        if (!refreshTokens.isEnabled()) {
+            return tokenResult.toJson();
         }
+        String refreshToken = refreshTokens.issue(client.id(), refreshTokens.newFamily(), tokenResult);
+        return tokenResult.toJson(refreshToken, refreshTokens.validitySeconds());
     }
 }
@@ -0,0 +1,28 @@
+package com.hytale.api.http.handlers;
+
+import com.hytale.api.security.TokenGenerator;
+import io.netty.handler.codec.http.FullHttpRequest;
+
+/**
+ * Handler for GET /.well-known/jwks.json endpoint.
+ * Publishes the public keys that can verify issued tokens.
+ * No authentication required.
+ */
+public final class JwksHandler {
+    public static final String PATH = "/.well-known/jwks.json";
+
+    /**
+     * Verifiers may cache the key set; rotation keeps old keys for a grace period.
+     */
+    public static final String CACHE_CONTROL = "public, max-age=300";
+
+    private final TokenGenerator tokenGenerator;
+
+    public JwksHandler(TokenGenerator tokenGenerator) {
+        this.tokenGenerator = tokenGenerator;
+    }
+
+    public String handle(FullHttpRequest request) {
+        return tokenGenerator.getPublicJwks();
+    }
+}
@@ -0,0 +1,37 @@
+package com.hytale.api.http.handlers;
+
+import com.google.gson.Gson;
+import com.hytale.api.dto.response.ApiResponses.RateLimitDiagnosticsResponse;
+import com.hytale.api.exception.ApiException;
+import com.hytale.api.ratelimit.AdaptiveConcurrencyLimiter;
+import com.hytale.api.ratelimit.RateLimiter;
+import com.hytale.api.security.ApiPermissions;
+import com.hytale.api.security.ClientIdentity;
+import io.netty.handler.codec.http.FullHttpRequest;
+
+/**
+ * Handler for GET /server/ratelimits endpoint.
+ * Reports the rate limiter's table size and eviction counters, and the
+ * adaptive concurrency limit with the reason it last changed.
+ */
+public final class RateLimitHandler {
+    private static final Gson GSON = new Gson();
+
+    private final RateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    public RateLimitHandler(RateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public String handle(FullHttpRequest request, ClientIdentity identity) {
+        if (!identity.hasPermission(ApiPermissions.SERVER_METRICS_READ)) {
+            throw ApiException.Forbidden.insufficientPermissions(ApiPermissions.SERVER_METRICS_READ);
+        }
+        return GSON.toJson(new RateLimitDiagnosticsResponse(
+                rateLimiter.stats(),
+                concurrencyLimiter != null ? concurrencyLimiter.status() : null
+        ));
+    }
+}
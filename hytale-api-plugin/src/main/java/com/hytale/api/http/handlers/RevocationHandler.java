@@ -0,0 +1,88 @@
+package com.hytale.api.http.handlers;
+
+import com.google.gson.Gson;
+import com.hytale.api.config.ApiConfig;
+import com.hytale.api.dto.request.AdminRequests.RevokeRequest;
+import com.hytale.api.dto.response.ApiResponses.AdminActionResponse;
+import com.hytale.api.dto.response.ApiResponses.RevocationsResponse;
+import com.hytale.api.exception.ApiException;
+import com.hytale.api.security.ApiPermissions;
+import com.hytale.api.security.ClientIdentity;
+import com.hytale.api.security.TokenGenerator;
+import io.netty.handler.codec.http.FullHttpRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Handler for token revocation endpoints.
+ * POST /admin/revoke revokes one token by ID or every token issued to a client;
+ * GET /admin/revocations summarises the revocation list.
+ */
+public final class RevocationHandler {
+    private static final Logger LOGGER = Logger.getLogger(RevocationHandler.class.getName());
+    private static final Gson GSON = new Gson();
+
+    private final ApiConfig config;
+    private final TokenGenerator tokenGenerator;
+
+    public RevocationHandler(ApiConfig config, TokenGenerator tokenGenerator) {
+        this.config = config;
+        this.tokenGenerator = tokenGenerator;
+    }
+
+    /**
+     * POST /admin/revoke - Revoke a token or all of a client's tokens.
+     */
+    public String handleRevoke(FullHttpRequest request, ClientIdentity identity) {
+        if (!identity.hasPermission(ApiPermissions.ADMIN_REVOKE)) {
+            throw ApiException.Forbidden.insufficientPermissions(ApiPermissions.ADMIN_REVOKE);
+        }
+
+        RevokeRequest revokeRequest;
+        try {
+            revokeRequest = GSON.fromJson(request.content().toString(StandardCharsets.UTF_8), RevokeRequest.class);
+        } catch (Exception e) {
+            throw ApiException.BadRequest.invalidJson(e.getMessage());
+        }
+        if (revokeRequest == null || !revokeRequest.isValid()) {
+            throw ApiException.BadRequest.missingField("tokenId or clientId");
+        }
+
+        if (revokeRequest.isSingleToken()) {
+            // Token expiry is unknown here; no token outlives the configured validity
+            Instant expiry = Instant.now().plusSeconds(config.jwt().tokenValiditySeconds());
+            tokenGenerator.revokeToken(revokeRequest.tokenId(), expiry);
+            auditLog("REVOKE_TOKEN", identity, revokeRequest.tokenId());
+            return GSON.toJson(new AdminActionResponse(true, "revoke", revokeRequest.tokenId(),
+                    "Token revoked"));
+        }
+
+        Instant cutoff = tokenGenerator.revokeClient(revokeRequest.clientId());
+        auditLog("REVOKE_CLIENT", identity, revokeRequest.clientId());
+        return GSON.toJson(new AdminActionResponse(true, "revoke", revokeRequest.clientId(),
+                "All tokens issued before %s revoked".formatted(cutoff)));
+    }
+
+    /**
+     * GET /admin/revocations - Summarise the revocation list.
+     */
+    public String handleList(FullHttpRequest request, ClientIdentity identity) {
+        if (!identity.hasPermission(ApiPermissions.ADMIN_REVOKE)) {
+            throw ApiException.Forbidden.insufficientPermissions(ApiPermissions.ADMIN_REVOKE);
+        }
+
+        var store = tokenGenerator.getRevocationStore();
+        Map<String, Long> cutoffs = new HashMap<>();
+        store.clientCutoffs().forEach((clientId, cutoff) -> cutoffs.put(clientId, cutoff.toEpochMilli()));
+
+        return GSON.toJson(new RevocationsResponse(store.revokedTokenCount(), cutoffs));
+    }
+
+    private void auditLog(String action, ClientIdentity identity, String details) {
+        LOGGER.info("[AUDIT] %s by client '%s': %s".formatted(action, identity.clientId(), details));
+    }
+}
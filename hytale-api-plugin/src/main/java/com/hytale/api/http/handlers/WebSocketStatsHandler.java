@@ -0,0 +1,57 @@
+package com.hytale.api.http.handlers;
+
+import com.google.gson.Gson;
+import com.hytale.api.dto.response.ApiResponses.WebSocketSessionInfo;
+import com.hytale.api.dto.response.ApiResponses.WebSocketSessionsResponse;
+import com.hytale.api.exception.ApiException;
+import com.hytale.api.security.ApiPermissions;
+import com.hytale.api.security.ClientIdentity;
+import com.hytale.api.websocket.WebSocketCompression;
+import com.hytale.api.websocket.WebSocketKeepAlive;
+import com.hytale.api.websocket.WebSocketSession;
+import com.hytale.api.websocket.WebSocketSessionManager;
+import io.netty.handler.codec.http.FullHttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Handler for GET /server/websockets endpoint.
+ * Reports each WebSocket session's subscriptions, outbound queue depth, the
+ * number of events dropped because the client could not keep up, ping
+ * round-trip time, and permessage-deflate savings against the time spent
+ * compressing.
+ */
+public final class WebSocketStatsHandler {
+    private static final Gson GSON = new Gson();
+
+    private final WebSocketSessionManager sessionManager;
+
+    public WebSocketStatsHandler(WebSocketSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    public String handle(FullHttpRequest request, ClientIdentity identity) {
+        if (!identity.hasPermission(ApiPermissions.SERVER_METRICS_READ)) {
+            throw ApiException.Forbidden.insufficientPermissions(ApiPermissions.SERVER_METRICS_READ);
+        }
+
+        WebSocketCompression compression = sessionManager.getCompression();
+        List<WebSocketSessionInfo> sessions = new ArrayList<>();
+        for (WebSocketSession session : sessionManager.getSessions()) {
+            sessions.add(new WebSocketSessionInfo(
+                    session.identity().clientId(),
+                    String.valueOf(session.channel().remoteAddress()),
+                    Set.copyOf(session.subscriptions()),
+                    session.queuedCount(),
+                    session.droppedCount(),
+                    session.connectedAt(),
+                    WebSocketKeepAlive.rttMillis(session.channel()),
+                    compression != null ? compression.stats(session.channel()) : null
+            ));
+        }
+        return GSON.toJson(new WebSocketSessionsResponse(sessions.size(),
+                compression != null ? compression.totals() : null, sessions));
+    }
+}
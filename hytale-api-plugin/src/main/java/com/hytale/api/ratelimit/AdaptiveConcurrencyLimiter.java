@@ -0,0 +1,188 @@
+package com.hytale.api.ratelimit;
+
+import com.hytale.api.config.ApiConfig.RateLimitConfig.ConcurrencyLimitConfig;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Limits how many API requests are in flight at once, adapting the limit to
+ * server health (AIMD). Every interval the limiter looks at mean handler
+ * latency, GC pause time and world-thread delay; if any is over its threshold
+ * the limit is cut multiplicatively, otherwise it grows by one while requests
+ * are actually pressing against it.
+ */
+public final class AdaptiveConcurrencyLimiter {
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveConcurrencyLimiter.class.getName());
+
+    private final ConcurrencyLimitConfig config;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final WorldTickProbe tickProbe = new WorldTickProbe();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile int limit;
+    private volatile Status status;
+    private long lastGcMillis;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitConfig config) {
+        this.config = config;
+        this.limit = config.effectiveInitialLimit();
+        this.status = new Status(limit, 0, "initial", System.currentTimeMillis(), 0, 0, 0, 0);
+        this.lastGcMillis = totalGcMillis();
+        this.scheduler = Executors.newScheduledThreadPool(1, Thread.ofVirtual().factory());
+
+        long interval = config.effectiveAdjustIntervalMillis();
+        scheduler.scheduleAtFixedRate(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Claim an in-flight slot.
+     *
+     * @return false if the current limit is reached
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulate(current + 1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a slot claimed by {@link #tryAcquire()}.
+     *
+     * @param startNanos {@link System#nanoTime()} when the request was admitted
+     */
+    public void release(long startNanos) {
+        inFlight.decrementAndGet();
+        latencyNanos.add(System.nanoTime() - startNanos);
+        completed.increment();
+    }
+
+    /**
+     * Release a slot without sampling its latency, for work that is slow by
+     * design (e.g. bcrypt) and would otherwise read as server overload.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Get the current limit and why it last changed.
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Stop adjusting the limit.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void adjust() {
+        try {
+            long count = completed.sumThenReset();
+            long meanLatencyMs = count > 0 ? TimeUnit.NANOSECONDS.toMillis(latencyNanos.sumThenReset() / count) : 0;
+            long gcMillis = totalGcMillis();
+            long gcPauseMs = gcMillis - lastGcMillis;
+            lastGcMillis = gcMillis;
+            long tickLagMs = TimeUnit.NANOSECONDS.toMillis(tickProbe.sample());
+            int peak = (int) peakInFlight.getThenReset();
+
+            int current = limit;
+            int next = current;
+            String reason = null;
+            if (tickLagMs > config.effectiveTickLagThresholdMillis()) {
+                reason = "world tick delay %dms over %dms".formatted(tickLagMs, config.effectiveTickLagThresholdMillis());
+            } else if (gcPauseMs > config.effectiveGcPauseThresholdMillis()) {
+                reason = "GC pause %dms over %dms".formatted(gcPauseMs, config.effectiveGcPauseThresholdMillis());
+            } else if (meanLatencyMs > config.effectiveLatencyThresholdMillis()) {
+                reason = "handler latency %dms over %dms".formatted(meanLatencyMs, config.effectiveLatencyThresholdMillis());
+            }
+
+            if (reason != null) {
+                next = Math.max(config.effectiveMinLimit(), (int) (current * config.effectiveBackoffRatio()));
+            } else if (peak >= current && current < config.effectiveMaxLimit()) {
+                // Only grow while requests are pressing against the limit
+                next = current + 1;
+                reason = "healthy at limit";
+            }
+
+            if (next != current) {
+                limit = next;
+                String message = "API concurrency limit %d -> %d (%s)".formatted(current, next, reason);
+                LOGGER.log(next < current ? Level.INFO : Level.FINE, message);
+                status = new Status(next, inFlight.get(), reason, System.currentTimeMillis(),
+                        meanLatencyMs, gcPauseMs, tickLagMs, rejected.sum());
+            } else {
+                Status previous = status;
+                status = new Status(current, inFlight.get(), previous.reason(), previous.changedAt(),
+                        meanLatencyMs, gcPauseMs, tickLagMs, rejected.sum());
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled adjustment
+            LOGGER.log(Level.WARNING, "Concurrency limit adjustment failed", e);
+        }
+    }
+
+    private long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            long time = collector.getCollectionTime();
+            if (time > 0) total += time;
+        }
+        return total;
+    }
+
+    /**
+     * Limiter state as of the last adjustment.
+     *
+     * @param reason    why the limit last changed
+     * @param changedAt when the limit last changed (epoch millis)
+     * @param latencyMs mean handler latency over the last interval
+     * @param gcPauseMs GC time accumulated over the last interval
+     * @param tickLagMs worst world-thread delay over the last interval
+     * @param rejected  requests rejected since startup
+     */
+    public record Status(
+            int limit,
+            int inFlight,
+            String reason,
+            long changedAt,
+            long latencyMs,
+            long gcPauseMs,
+            long tickLagMs,
+            long rejected
+    ) {}
+}
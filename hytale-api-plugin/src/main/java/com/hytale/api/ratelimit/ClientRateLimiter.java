@@ -0,0 +1,92 @@
+package com.hytale.api.ratelimit;
+
+import com.hytale.api.config.ApiConfig;
+import com.hytale.api.config.ApiConfig.ClientConfig;
+import com.hytale.api.config.ApiConfig.RateLimitConfig;
+import com.hytale.api.ratelimit.RateLimiter.Bucket;
+import com.hytale.api.ratelimit.RateLimiter.Limit;
+import com.hytale.api.ratelimit.RateLimiter.RateLimitResult;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate limiter keyed by authenticated client (token subject) rather than IP.
+ * Each client has one bucket shared across all routes; a request takes as many
+ * tokens as its route's configured cost, so expensive routes use up the quota
+ * faster. Clients may override the default quota in their own config.
+ * Like {@link RateLimiter}, buckets live in the {@link SharedBucketTable} when
+ * one is configured.
+ */
+public final class ClientRateLimiter {
+    private static final String CLIENT_ENDPOINT = "client";
+
+    private final Map<String, Limit> clientLimits = new HashMap<>();
+    private final Limit defaultLimit;
+    private final PathTable<Integer> costs;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final SharedBucketTable shared;
+
+    /**
+     * @param shared cross-process bucket table, or null for in-process limits only
+     */
+    public ClientRateLimiter(ApiConfig config, SharedBucketTable shared) {
+        this.shared = shared;
+        RateLimitConfig rateLimits = config.rateLimits();
+        this.defaultLimit = new Limit(rateLimits.effectiveClientRequestsPerMinute(),
+                rateLimits.effectiveClientBurstSize());
+        this.costs = PathTable.compile(rateLimits.routeCosts(), cost -> Math.max(1, cost), 1);
+
+        for (ClientConfig client : config.clients()) {
+            if (client.rateLimit() != null) {
+                clientLimits.put(client.id(), new Limit(client.rateLimit().requestsPerMinute(),
+                        client.rateLimit().burstSize()));
+            }
+        }
+    }
+
+    /**
+     * Take a route's cost from a client's bucket.
+     *
+     * @param clientId authenticated client ID
+     * @param path     request path, used to look up the route cost
+     * @return Result indicating if request is allowed
+     */
+    public RateLimitResult tryAcquire(String clientId, String path) {
+        Limit limit = clientLimits.getOrDefault(clientId, defaultLimit);
+        if (shared != null) {
+            // Endpoints always start with '/', so this cannot collide with an IP bucket
+            RateLimitResult result = shared.tryAcquire(clientId, CLIENT_ENDPOINT, limit, costOf(path));
+            if (result != null) {
+                return result;
+            }
+        }
+
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            // Bounded by the configured clients; tokens only name known clients
+            Bucket created = new Bucket(limit, now);
+            bucket = buckets.putIfAbsent(clientId, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket.tryAcquire(now, costOf(path));
+    }
+
+    /**
+     * Get the token cost of a route.
+     */
+    public int costOf(String path) {
+        return costs.forPath(path);
+    }
+
+    /**
+     * Reset a client's bucket.
+     */
+    public void reset(String clientId) {
+        buckets.remove(clientId);
+    }
+}
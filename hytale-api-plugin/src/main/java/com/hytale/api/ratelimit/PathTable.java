@@ -0,0 +1,50 @@
+package com.hytale.api.ratelimit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Values keyed by path pattern, resolved from config once.
+ * Patterns are exact paths or prefixes ending in {@code /*}; exact matches are
+ * a hash lookup, prefixes are tried in turn, then the fallback applies.
+ */
+final class PathTable<V> {
+    private final Map<String, V> exact = new HashMap<>();
+    private final List<Map.Entry<String, V>> prefixes = new ArrayList<>();
+    private final V fallback;
+
+    private PathTable(V fallback) {
+        this.fallback = fallback;
+    }
+
+    static <S, V> PathTable<V> compile(Map<String, S> patterns, Function<S, V> compile, V fallback) {
+        PathTable<V> table = new PathTable<>(fallback);
+        if (patterns != null) {
+            patterns.forEach((pattern, source) -> {
+                V value = compile.apply(source);
+                if (pattern.endsWith("/*")) {
+                    table.prefixes.add(Map.entry(pattern.substring(0, pattern.length() - 1), value));
+                } else {
+                    table.exact.put(pattern, value);
+                }
+            });
+        }
+        return table;
+    }
+
+    V forPath(String path) {
+        V value = exact.get(path);
+        if (value != null) {
+            return value;
+        }
+        for (var entry : prefixes) {
+            if (path.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return fallback;
+    }
+}
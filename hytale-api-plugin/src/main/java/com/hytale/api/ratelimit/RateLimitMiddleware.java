@@ -1,49 +1,119 @@
 package com.hytale.api.ratelimit;
 
+import com.hytale.api.config.ApiConfig.CorsConfig;
 import com.hytale.api.exception.ApiException;
+import com.hytale.api.http.CorsHeaders;
+import com.hytale.api.ratelimit.RateLimiter.RateLimitResult;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AttributeKey;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Logger;
 
 /**
  * Netty handler for rate limiting incoming requests.
- * Extracts client IP and checks against rate limiter.
+ * Extracts client IP and checks against rate limiter. Limited requests are
+ * answered with 429 here, before they reach the WebSocket or HTTP handlers.
  */
 @ChannelHandler.Sharable
 public final class RateLimitMiddleware extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final Logger LOGGER = Logger.getLogger(RateLimitMiddleware.class.getName());
 
+    /**
+     * Latest rate limit result for the channel, reported in response headers.
+     */
+    public static final AttributeKey<RateLimitResult> RESULT_KEY = AttributeKey.valueOf("ratelimit.result");
+
+    /**
+     * Client IP the channel's latest request was limited under; for requests that
+     * arrive over an upgraded WebSocket.
+     */
+    public static final AttributeKey<String> CLIENT_IP_KEY = AttributeKey.valueOf("ratelimit.clientIp");
+
     private final RateLimiter rateLimiter;
+    private final CorsConfig cors;
 
-    public RateLimitMiddleware(RateLimiter rateLimiter) {
+    public RateLimitMiddleware(RateLimiter rateLimiter, CorsConfig cors) {
         super(false); // Don't auto-release, pass to next handler
         this.rateLimiter = rateLimiter;
+        this.cors = cors;
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
         String clientIp = getClientIp(ctx, request);
         String path = getPath(request.uri());
+        ctx.channel().attr(CLIENT_IP_KEY).set(clientIp);
 
         var result = rateLimiter.tryAcquire(clientIp, path);
 
         if (result.isLimited()) {
             LOGGER.fine(() -> "Rate limited: " + clientIp + " on " + path);
-            throw new ApiException.RateLimited(result.retryAfterSeconds());
+            try {
+                sendLimited(ctx, request, result);
+            } finally {
+                request.release();
+            }
+            return;
         }
 
-        // Store remaining tokens for response headers
-        ctx.channel().attr(REMAINING_TOKENS_KEY).set(result.remainingTokens());
+        // Store result for response headers
+        ctx.channel().attr(RESULT_KEY).set(result);
 
         // Pass to next handler
         ctx.fireChannelRead(request);
     }
 
+    /**
+     * Add RateLimit-* headers (IETF draft) plus the legacy X-RateLimit-Remaining.
+     */
+    public static void addHeaders(HttpHeaders headers, RateLimitResult result) {
+        if (result == null) return;
+        headers.set("RateLimit-Limit", result.limit());
+        headers.set("RateLimit-Remaining", result.remainingTokens());
+        headers.set("RateLimit-Reset", result.resetSeconds());
+        headers.set("X-RateLimit-Remaining", result.remainingTokens());
+        if (result.isLimited()) {
+            headers.set(HttpHeaderNames.RETRY_AFTER, result.retryAfterSeconds());
+        }
+    }
+
+    private void sendLimited(ChannelHandlerContext ctx, FullHttpRequest request, RateLimitResult result) {
+        byte[] bytes = new ApiException.RateLimited(result.retryAfterSeconds()).toJson()
+                .getBytes(StandardCharsets.UTF_8);
+
+        FullHttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1,
+                HttpResponseStatus.TOO_MANY_REQUESTS,
+                Unpooled.wrappedBuffer(bytes)
+        );
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8");
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, bytes.length);
+        addHeaders(response.headers(), result);
+        CorsHeaders.apply(cors, response, request);
+
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        HttpUtil.setKeepAlive(response, keepAlive);
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
     /**
      * Extract client IP from request, considering X-Forwarded-For header.
      */
@@ -79,10 +149,4 @@ public final class RateLimitMiddleware extends SimpleChannelInboundHandler<FullH
         int queryStart = uri.indexOf('?');
         return queryStart > 0 ? uri.substring(0, queryStart) : uri;
     }
-
-    /**
-     * Attribute key for storing remaining tokens.
-     */
-    public static final io.netty.util.AttributeKey<Integer> REMAINING_TOKENS_KEY =
-            io.netty.util.AttributeKey.valueOf("ratelimit.remaining");
 }
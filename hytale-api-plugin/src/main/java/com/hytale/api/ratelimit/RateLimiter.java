@@ -2,24 +2,81 @@ package com.hytale.api.ratelimit;
 
 import com.hytale.api.config.ApiConfig.RateLimitConfig;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Token bucket rate limiter implementation.
  * Thread-safe for concurrent access from Netty event loops.
+ *
+ * <p>Each bucket's state is a single {@code long}: the time (in nanos) at which
+ * the bucket will be full again. The token count is derived from it, so a refill
+ * plus consume is one compare-and-set with no allocation. Buckets are stored per
+ * key, then per configured endpoint pattern, so lookups need no composite String
+ * key and a key holds at most one bucket per pattern; paths no pattern matches
+ * share the key's default bucket.
+ *
+ * <p>When a {@link SharedBucketTable} is configured, buckets live in the shared
+ * file so limits hold across server processes on the host; the in-process table
+ * is then only used if the shared one has no slot to spare.
+ *
+ * <p>Idle buckets are removed by a background sweeper rather than on the request
+ * path. The number of keys is capped; when a new key pushes the table past the
+ * cap, the least recently used keys (estimated from a sample) are evicted.
  */
 public final class RateLimiter {
-    private final RateLimitConfig config;
-    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
-    private final Duration cleanupInterval = Duration.ofMinutes(5);
-    private volatile Instant lastCleanup = Instant.now();
+    private static final Logger LOGGER = Logger.getLogger(RateLimiter.class.getName());
+
+    private static final long IDLE_EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+    private static final long ACCESS_RESOLUTION_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int EVICTION_SAMPLE_SIZE = 256;
+
+    private static final String DEFAULT_PATTERN = "*";
+
+    private final PathTable<Endpoint> limits;
+    private final SharedBucketTable shared;
+    private final Map<String, KeyBuckets> buckets = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final int hardMaxKeys;
+    private final ScheduledExecutorService sweeper;
+    private final AtomicBoolean evictionPending = new AtomicBoolean();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
 
     public RateLimiter(RateLimitConfig config) {
-        this.config = config;
+        this(config, null);
+    }
+
+    /**
+     * @param shared cross-process bucket table, or null for in-process limits only
+     */
+    public RateLimiter(RateLimitConfig config, SharedBucketTable shared) {
+        this.shared = shared;
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        if (config.endpoints() != null) {
+            config.endpoints().forEach((pattern, limit) -> endpoints.put(pattern,
+                    new Endpoint(pattern, new Limit(limit.requestsPerMinute(), limit.burstSize()))));
+        }
+        this.limits = PathTable.compile(endpoints, endpoint -> endpoint,
+                new Endpoint(DEFAULT_PATTERN, new Limit(config.defaultRequestsPerMinute(), config.burstSize())));
+        this.maxKeys = config.effectiveMaxKeys();
+        // Headroom for inserts racing the background eviction before callers evict inline
+        this.hardMaxKeys = maxKeys + Math.max(1, maxKeys / 4);
+        this.sweeper = Executors.newScheduledThreadPool(1, Thread.ofVirtual().factory());
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     /**
@@ -30,112 +87,343 @@ public final class RateLimiter {
      * @return Result indicating if request is allowed
      */
     public RateLimitResult tryAcquire(String key, String endpoint) {
-        maybeCleanup();
-
-        String bucketKey = key + ":" + endpoint;
-        var limits = config.getForEndpoint(endpoint);
+        Endpoint matched = limits.forPath(endpoint);
+        if (shared != null) {
+            RateLimitResult result = shared.tryAcquire(key, matched.pattern(), matched.limit(), 1);
+            if (result != null) {
+                return result;
+            }
+        }
+        long now = System.nanoTime();
+        return bucket(key, matched, now).tryAcquire(now, 1);
+    }
 
-        TokenBucket bucket = buckets.computeIfAbsent(bucketKey,
-                k -> new TokenBucket(limits.requestsPerMinute(), limits.burstSize()));
+    /**
+     * Find or create the bucket for a key and endpoint pattern.
+     * Plain gets first so the common path allocates nothing.
+     */
+    private Bucket bucket(String key, Endpoint endpoint, long now) {
+        KeyBuckets keyBuckets = buckets.get(key);
+        if (keyBuckets == null) {
+            KeyBuckets created = new KeyBuckets(now);
+            keyBuckets = buckets.putIfAbsent(key, created);
+            if (keyBuckets == null) {
+                keyBuckets = created;
+                onKeyAdded();
+            }
+        } else {
+            keyBuckets.touch(now);
+        }
 
-        return bucket.tryAcquire();
+        Bucket bucket = keyBuckets.byEndpoint.get(endpoint.pattern());
+        if (bucket == null) {
+            Bucket created = new Bucket(endpoint.limit(), now);
+            bucket = keyBuckets.byEndpoint.putIfAbsent(endpoint.pattern(), created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket;
     }
 
     /**
      * Get remaining tokens for a key/endpoint combination.
      */
     public int getRemainingTokens(String key, String endpoint) {
-        String bucketKey = key + ":" + endpoint;
-        TokenBucket bucket = buckets.get(bucketKey);
-        return bucket != null ? bucket.getAvailableTokens() : config.getForEndpoint(endpoint).burstSize();
+        Endpoint matched = limits.forPath(endpoint);
+        KeyBuckets keyBuckets = buckets.get(key);
+        Bucket bucket = keyBuckets != null ? keyBuckets.byEndpoint.get(matched.pattern()) : null;
+        return bucket != null
+                ? bucket.limit.remaining(bucket.state, System.nanoTime())
+                : matched.limit().burst;
     }
 
     /**
      * Reset rate limit for a specific key (e.g., after successful auth).
      */
     public void reset(String key) {
-        buckets.entrySet().removeIf(e -> e.getKey().startsWith(key + ":"));
+        buckets.remove(key);
+    }
+
+    /**
+     * Get bucket table size and sweeper/eviction counters.
+     */
+    public Stats stats() {
+        long bucketCount = 0;
+        for (KeyBuckets keyBuckets : buckets.values()) {
+            bucketCount += keyBuckets.byEndpoint.size();
+        }
+        return new Stats(buckets.size(), bucketCount, maxKeys, evicted.sum(), expired.sum(), shared != null);
     }
 
     /**
-     * Periodically cleanup expired buckets.
+     * Stop the background sweeper.
      */
-    private void maybeCleanup() {
-        Instant now = Instant.now();
-        if (Duration.between(lastCleanup, now).compareTo(cleanupInterval) > 0) {
-            lastCleanup = now;
-            buckets.entrySet().removeIf(e -> e.getValue().isExpired());
+    public void shutdown() {
+        sweeper.shutdown();
+        try {
+            if (!sweeper.awaitTermination(5, TimeUnit.SECONDS)) {
+                sweeper.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            sweeper.shutdownNow();
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Token bucket implementation with atomic operations.
+     * Keep the table bounded after a new key is inserted.
+     * Normally eviction is handed to the sweeper thread; only if inserts outrun it
+     * does the inserting thread evict.
      */
-    private static final class TokenBucket {
-        private final int tokensPerMinute;
-        private final int maxBurst;
-        private final AtomicReference<BucketState> state;
-        private final Duration expiryDuration = Duration.ofMinutes(10);
+    private void onKeyAdded() {
+        int size = buckets.size();
+        if (size <= maxKeys) {
+            return;
+        }
+        if (size > hardMaxKeys) {
+            evictOverflow();
+        } else if (evictionPending.compareAndSet(false, true)) {
+            try {
+                sweeper.execute(() -> {
+                    try {
+                        evictOverflow();
+                    } finally {
+                        evictionPending.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                evictionPending.set(false);
+            }
+        }
+    }
 
-        TokenBucket(int tokensPerMinute, int maxBurst) {
-            this.tokensPerMinute = tokensPerMinute;
-            this.maxBurst = maxBurst;
-            this.state = new AtomicReference<>(new BucketState(maxBurst, Instant.now()));
+    /**
+     * Remove idle buckets, then any keys left with none.
+     */
+    private void sweep() {
+        try {
+            long now = System.nanoTime();
+            buckets.values().removeIf(keyBuckets -> {
+                keyBuckets.byEndpoint.values().removeIf(bucket -> {
+                    if (bucket.isIdle(now)) {
+                        expired.increment();
+                        return true;
+                    }
+                    return false;
+                });
+                return keyBuckets.byEndpoint.isEmpty();
+            });
+            evictOverflow();
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled sweep
+            LOGGER.log(Level.WARNING, "Rate limit bucket sweep failed", e);
         }
+    }
 
-        RateLimitResult tryAcquire() {
-            while (true) {
-                BucketState current = state.get();
-                BucketState updated = current.refill(tokensPerMinute, maxBurst);
+    /**
+     * Approximate LRU eviction down to seven eighths of the cap.
+     * Last-access times are sampled across the table to estimate the cutoff below
+     * which keys are evicted, so no full sort or access-ordered structure is needed.
+     */
+    private synchronized void evictOverflow() {
+        int size = buckets.size();
+        int target = maxKeys - maxKeys / 8;
+        int excess = size - target;
+        if (size <= maxKeys || excess <= 0) {
+            return;
+        }
 
-                if (updated.tokens < 1) {
-                    long retryAfterSeconds = calculateRetryAfter(updated);
-                    return new RateLimitResult(false, 0, retryAfterSeconds);
-                }
+        int stride = Math.max(1, size / EVICTION_SAMPLE_SIZE);
+        long[] sample = new long[EVICTION_SAMPLE_SIZE];
+        int sampled = 0;
+        int index = 0;
+        for (KeyBuckets keyBuckets : buckets.values()) {
+            if (index++ % stride == 0) {
+                sample[sampled++] = keyBuckets.lastAccess;
+                if (sampled == sample.length) break;
+            }
+        }
+        if (sampled == 0) {
+            return;
+        }
+        Arrays.sort(sample, 0, sampled);
+        int rank = (int) Math.min(sampled - 1, (long) excess * sampled / size);
+        long cutoff = sample[rank];
 
-                BucketState consumed = new BucketState(updated.tokens - 1, Instant.now());
-                if (state.compareAndSet(current, consumed)) {
-                    return new RateLimitResult(true, consumed.tokens, 0);
-                }
-                // CAS failed, retry
+        int removed = 0;
+        var it = buckets.values().iterator();
+        while (it.hasNext() && removed < excess) {
+            if (it.next().lastAccess - cutoff <= 0) {
+                it.remove();
+                removed++;
+            }
+        }
+        evicted.add(removed);
+
+        int finalRemoved = removed;
+        LOGGER.fine(() -> "Evicted %d rate limit keys (table at %d, cap %d)".formatted(finalRemoved, size, maxKeys));
+    }
+
+    /**
+     * A configured endpoint pattern and its limit; the pattern names the bucket.
+     */
+    private record Endpoint(String pattern, Limit limit) {}
+
+    /**
+     * Buckets for one key by endpoint pattern, with a coarse last-access time for LRU eviction.
+     */
+    static final class KeyBuckets {
+        final Map<String, Bucket> byEndpoint = new ConcurrentHashMap<>();
+        volatile long lastAccess;
+
+        KeyBuckets(long now) {
+            this.lastAccess = now;
+        }
+
+        void touch(long now) {
+            // Coarse resolution keeps hot keys from writing a shared field on every request
+            if (now - lastAccess > ACCESS_RESOLUTION_NANOS) {
+                lastAccess = now;
             }
         }
+    }
+
+    /**
+     * Rate and burst for one endpoint, with derived constants for bucket math.
+     * All times are nanoseconds on a caller-chosen clock.
+     */
+    static final class Limit {
+        final int requestsPerMinute;
+        final int burst;
+        final long nanosPerToken;
+        final long capacityNanos;
+
+        Limit(int requestsPerMinute, int burst) {
+            this.requestsPerMinute = Math.max(1, requestsPerMinute);
+            this.burst = Math.max(1, burst);
+            this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / this.requestsPerMinute;
+            this.capacityNanos = this.burst * nanosPerToken;
+        }
+
+        /**
+         * State after taking {@code cost} tokens; admitted only if {@link #admits} holds.
+         */
+        long consume(long fullAt, long now, int cost) {
+            // A cost above the burst could never be admitted; cap it at a full bucket
+            return Math.max(fullAt, now) + Math.min(cost, burst) * nanosPerToken;
+        }
+
+        boolean admits(long fullAt, long now) {
+            return fullAt - now <= capacityNanos;
+        }
+
+        int remaining(long fullAt, long now) {
+            long debt = Math.max(0, fullAt - now);
+            return (int) Math.max(0, (capacityNanos - debt) / nanosPerToken);
+        }
+
+        long retryAfterSeconds(long fullAt, long now) {
+            return Math.max(1, ceilSeconds(fullAt - now - capacityNanos));
+        }
+
+        long resetSeconds(long fullAt, long now) {
+            return Math.max(0, ceilSeconds(fullAt - now));
+        }
 
-        int getAvailableTokens() {
-            return state.get().refill(tokensPerMinute, maxBurst).tokens;
+        private static long ceilSeconds(long nanos) {
+            return TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1);
         }
+    }
+
+    /**
+     * Token bucket with a single packed state word updated by CAS.
+     */
+    static final class Bucket {
+        private static final VarHandle STATE;
 
-        boolean isExpired() {
-            return Duration.between(state.get().lastUpdate, Instant.now()).compareTo(expiryDuration) > 0;
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(Bucket.class, "state", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
         }
 
-        private long calculateRetryAfter(BucketState state) {
-            // Calculate seconds until one token is available
-            double tokensNeeded = 1.0 - state.tokens;
-            double secondsPerToken = 60.0 / tokensPerMinute;
-            return Math.max(1, (long) Math.ceil(tokensNeeded * secondsPerToken));
+        final Limit limit;
+
+        /**
+         * Time at which the bucket is full again; at or before now means full.
+         */
+        volatile long state;
+
+        Bucket(Limit limit, long now) {
+            this.limit = limit;
+            this.state = now;
         }
 
-        private record BucketState(int tokens, Instant lastUpdate) {
-            BucketState refill(int tokensPerMinute, int maxBurst) {
-                Duration elapsed = Duration.between(lastUpdate, Instant.now());
-                double tokensToAdd = elapsed.toMillis() * tokensPerMinute / 60000.0;
-                int newTokens = Math.min(maxBurst, tokens + (int) tokensToAdd);
-                return new BucketState(newTokens, Instant.now());
+        RateLimitResult tryAcquire(long now, int cost) {
+            while (true) {
+                long current = state;
+                long next = limit.consume(current, now, cost);
+
+                if (!limit.admits(next, now)) {
+                    return new RateLimitResult(false, limit.remaining(current, now),
+                            limit.retryAfterSeconds(next, now), limit.burst, limit.resetSeconds(current, now));
+                }
+                if (STATE.compareAndSet(this, current, next)) {
+                    return new RateLimitResult(true, limit.remaining(next, now), 0,
+                            limit.burst, limit.resetSeconds(next, now));
+                }
+                // CAS failed, retry
             }
         }
+
+        boolean isIdle(long now) {
+            return now - state > IDLE_EXPIRY_NANOS;
+        }
     }
 
+    /**
+     * Rate limiter table size and counters.
+     *
+     * @param keys     keys (clients or IPs) currently tracked
+     * @param buckets  buckets across all keys and endpoints
+     * @param maxKeys  configured key cap
+     * @param evicted  keys evicted to stay under the cap
+     * @param expired  idle buckets removed by the sweeper
+     * @param shared   whether buckets live in the cross-process shared table
+     */
+    public record Stats(int keys, long buckets, int maxKeys, long evicted, long expired, boolean shared) {}
+
     /**
      * Result of a rate limit check.
+     *
+     * @param limit        bucket capacity (burst) in tokens
+     * @param resetSeconds seconds until the bucket is full again
      */
     public record RateLimitResult(
             boolean allowed,
             int remainingTokens,
-            long retryAfterSeconds
+            long retryAfterSeconds,
+            int limit,
+            long resetSeconds
     ) {
         public boolean isLimited() {
             return !allowed;
         }
+
+        /**
+         * Pick the result closer to its limit, for reporting one policy in headers.
+         */
+        public static RateLimitResult tighter(RateLimitResult a, RateLimitResult b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            if (a.isLimited() != b.isLimited()) {
+                return a.isLimited() ? a : b;
+            }
+            return a.remainingTokens() <= b.remainingTokens() ? a : b;
+        }
     }
 }
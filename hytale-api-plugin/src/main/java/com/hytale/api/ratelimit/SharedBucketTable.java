@@ -0,0 +1,188 @@
+package com.hytale.api.ratelimit;
+
+import com.hytale.api.ratelimit.RateLimiter.Limit;
+import com.hytale.api.ratelimit.RateLimiter.RateLimitResult;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bucket table in a memory-mapped file, shared by every server process that
+ * maps the same file (e.g. containers with a common bind-mounted volume).
+ *
+ * <p>The file is a header followed by fixed 16-byte slots of
+ * {@code [key hash, state]}, where state is the same "full-at" time the
+ * in-process buckets use, on a wall clock all processes agree on. Slots are
+ * claimed and updated with compare-and-set directly on the mapping, found by
+ * linear probing over a short window. A slot whose bucket has been full for
+ * a while can be taken over by another key; if no slot in the window is free
+ * the caller falls back to its in-process bucket.
+ */
+public final class SharedBucketTable {
+    private static final Logger LOGGER = Logger.getLogger(SharedBucketTable.class.getName());
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long MAGIC = 0x48594f5352544c31L; // "HYOSRTL1"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int MAX_PROBES = 16;
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final long EMPTY = 0;
+
+    private final MappedByteBuffer buffer;
+    private final int slotMask;
+
+    private SharedBucketTable(MappedByteBuffer buffer, int slots) {
+        this.buffer = buffer;
+        this.slotMask = slots - 1;
+    }
+
+    /**
+     * Map the table file, creating and sizing it if needed.
+     *
+     * @param slots requested slot count, rounded up to a power of two; an existing
+     *              file keeps the size it was created with
+     * @return the table, or null if the file cannot be used
+     */
+    public static SharedBucketTable open(Path path, int slots) {
+        int requested = Integer.highestOneBit(Math.max(1024, slots) - 1) << 1;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+
+                // Header written under an exclusive lock so concurrent starters agree on size
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                int size;
+                if (header.getLong(0) == MAGIC) {
+                    size = header.getInt(8);
+                    if (Integer.bitCount(size) != 1 || channel.size() < HEADER_BYTES + (long) size * SLOT_BYTES) {
+                        LOGGER.warning("Shared rate limit table " + path + " is corrupt; using in-process limits");
+                        return null;
+                    }
+                } else {
+                    size = requested;
+                    header.putInt(8, size);
+                    header.putLong(0, MAGIC);
+                    header.force();
+                }
+
+                // The mapping stays valid after the channel is closed
+                MappedByteBuffer slotsBuffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_BYTES, (long) size * SLOT_BYTES);
+                LOGGER.info("Shared rate limit table mapped from %s (%d slots)".formatted(path, size));
+                return new SharedBucketTable(slotsBuffer, size);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Shared rate limit table unavailable at " + path
+                    + "; using in-process limits", e);
+            return null;
+        }
+    }
+
+    /**
+     * Take {@code cost} tokens from the shared bucket for a key and endpoint.
+     *
+     * @return the result, or null if no slot is available and the caller should
+     *         use its own bucket
+     */
+    RateLimitResult tryAcquire(String key, String endpoint, Limit limit, int cost) {
+        long now = now();
+        int offset = findSlot(hash(key, endpoint), now);
+        if (offset < 0) {
+            return null;
+        }
+
+        int stateOffset = offset + 8;
+        while (true) {
+            long current = (long) LONGS.getVolatile(buffer, stateOffset);
+            long next = limit.consume(current, now, cost);
+
+            if (!limit.admits(next, now)) {
+                return new RateLimitResult(false, limit.remaining(current, now),
+                        limit.retryAfterSeconds(next, now), limit.burst, limit.resetSeconds(current, now));
+            }
+            if (LONGS.compareAndSet(buffer, stateOffset, current, next)) {
+                return new RateLimitResult(true, limit.remaining(next, now), 0,
+                        limit.burst, limit.resetSeconds(next, now));
+            }
+        }
+    }
+
+    /**
+     * Find the key's slot, claiming an empty or long-idle one if it has none.
+     *
+     * @return byte offset of the slot, or -1 if the probe window is full
+     */
+    private int findSlot(long keyHash, long now) {
+        int start = (int) (keyHash ^ (keyHash >>> 32)) & slotMask;
+
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int offset = ((start + i) & slotMask) * SLOT_BYTES;
+            long slotKey = (long) LONGS.getVolatile(buffer, offset);
+            if (slotKey == keyHash) {
+                return offset;
+            }
+            if (slotKey == EMPTY) {
+                if (LONGS.compareAndSet(buffer, offset, EMPTY, keyHash)) {
+                    return offset;
+                }
+                // Lost the race; the winner may have been this same key
+                if ((long) LONGS.getVolatile(buffer, offset) == keyHash) {
+                    return offset;
+                }
+            }
+        }
+
+        // No free slot: take over one whose bucket has been full for a while.
+        // Its state is already in the past, which reads as a full bucket for the new key.
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int offset = ((start + i) & slotMask) * SLOT_BYTES;
+            long slotKey = (long) LONGS.getVolatile(buffer, offset);
+            long state = (long) LONGS.getVolatile(buffer, offset + 8);
+            if (now - state > IDLE_NANOS && LONGS.compareAndSet(buffer, offset, slotKey, keyHash)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Wall-clock nanoseconds; {@link System#nanoTime()} is not comparable across processes.
+     */
+    private static long now() {
+        return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+
+    /**
+     * 64-bit FNV-1a over the key and endpoint, never {@link #EMPTY}.
+     */
+    static long hash(String key, String endpoint) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ 0xffff) * 0x100000001b3L; // separator, so ("ab", "/c") and ("a", "b/c") differ
+        for (int i = 0; i < endpoint.length(); i++) {
+            h = (h ^ endpoint.charAt(i)) * 0x100000001b3L;
+        }
+        return h != EMPTY ? h : 1;
+    }
+}
@@ -0,0 +1,58 @@
+package com.hytale.api.ratelimit;
+
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates world tick health from how long a task waits on each world thread.
+ * The server does not expose tick timing, so each sample queues a no-op on every
+ * world and reports the longest queue delay seen; a probe still queued from an
+ * earlier sample counts its age so far, so a stalled world shows up immediately.
+ */
+final class WorldTickProbe {
+    private final Map<String, Long> queuedAt = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastLag = new ConcurrentHashMap<>();
+
+    /**
+     * Get the worst world-thread delay in nanos since the previous sample, and
+     * queue the next round of probes.
+     */
+    long sample() {
+        long now = System.nanoTime();
+        long worst = 0;
+        for (long lag : lastLag.values()) {
+            worst = Math.max(worst, lag);
+        }
+        lastLag.clear();
+
+        Universe universe = Universe.get();
+        if (universe == null) {
+            return worst;
+        }
+        for (World world : universe.getWorlds().values()) {
+            String name = world.getName();
+            Long queued = queuedAt.putIfAbsent(name, now);
+            if (queued != null) {
+                worst = Math.max(worst, now - queued);
+                continue;
+            }
+            try {
+                world.execute(() -> {
+                    Long at = queuedAt.remove(name);
+                    if (at != null) {
+                        lastLag.merge(name, System.nanoTime() - at, Math::max);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // World shutting down; drop the probe
+                queuedAt.remove(name);
+            }
+        }
+        // Forget worlds that have been unloaded
+        queuedAt.keySet().retainAll(universe.getWorlds().keySet());
+        return worst;
+    }
+}
@@ -1,5 +1,9 @@
 package com.hytale.api.security;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Permission node constants for the API.
  * Follows hierarchical permission structure with wildcards.
@@ -69,6 +73,7 @@ public final class ApiPermissions {
     public static final String ADMIN_KICK = "api.admin.kick";
     public static final String ADMIN_BAN = "api.admin.ban";
     public static final String ADMIN_BROADCAST = "api.admin.broadcast";
+    public static final String ADMIN_REVOKE = "api.admin.revoke";
 
     // Chat
     public static final String CHAT_MUTE = "api.chat.mute";
@@ -85,23 +90,68 @@ public final class ApiPermissions {
     public static final String WEBSOCKET_SUBSCRIBE_ALL = "api.websocket.subscribe.*";
 
     /**
-     * Check if a permission string matches a required permission.
-     * Supports wildcards like "api.*" and "api.admin.*"
+     * Every concrete (non-wildcard) permission, in a fixed order.
+     * Indices into this list are the bit positions used by {@link PermissionSet}.
      */
-    public static boolean matches(String granted, String required) {
-        if (granted == null || required == null) {
-            return false;
-        }
-        if (granted.equals(required)) {
-            return true;
-        }
-        if (granted.equals("*") || granted.equals("api.*")) {
-            return required.startsWith("api.");
-        }
-        if (granted.endsWith(".*")) {
-            String prefix = granted.substring(0, granted.length() - 1);
-            return required.startsWith(prefix);
+    public static final List<String> CATALOGUE = List.of(
+            VERSION_READ,
+            STATUS_READ,
+            SERVER_METRICS_READ,
+            SERVER_PLUGINS_READ,
+            SERVER_WHITELIST_WRITE,
+            SERVER_SAVE,
+            SERVER_PERMISSIONS_READ,
+            SERVER_PERMISSIONS_WRITE,
+            PLAYERS_READ,
+            PLAYERS_INVENTORY_READ,
+            PLAYERS_INVENTORY_WRITE,
+            PLAYERS_STATS_READ,
+            PLAYERS_LOCATION_READ,
+            PLAYERS_TELEPORT,
+            PLAYERS_GAMEMODE_READ,
+            PLAYERS_GAMEMODE_WRITE,
+            PLAYERS_MESSAGE,
+            PLAYERS_PERMISSIONS_READ,
+            PLAYERS_PERMISSIONS_WRITE,
+            PLAYERS_GROUPS_READ,
+            PLAYERS_GROUPS_WRITE,
+            WORLDS_READ,
+            WORLDS_TIME_READ,
+            WORLDS_TIME_WRITE,
+            WORLDS_WEATHER_READ,
+            WORLDS_WEATHER_WRITE,
+            WORLDS_ENTITIES_READ,
+            WORLDS_BLOCKS_READ,
+            WORLDS_BLOCKS_WRITE,
+            ADMIN_COMMAND,
+            ADMIN_KICK,
+            ADMIN_BAN,
+            ADMIN_BROADCAST,
+            ADMIN_REVOKE,
+            CHAT_MUTE,
+            WEBSOCKET_CONNECT,
+            WEBSOCKET_SUBSCRIBE_PLAYERS,
+            WEBSOCKET_SUBSCRIBE_CHAT,
+            WEBSOCKET_SUBSCRIBE_STATUS,
+            WEBSOCKET_SUBSCRIBE_ENTITIES,
+            WEBSOCKET_SUBSCRIBE_BLOCKS,
+            WEBSOCKET_SUBSCRIBE_INVENTORY,
+            WEBSOCKET_SUBSCRIBE_LOGS
+    );
+
+    private static final Map<String, Integer> CATALOGUE_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < CATALOGUE.size(); i++) {
+            CATALOGUE_INDEX.put(CATALOGUE.get(i), i);
         }
-        return false;
+    }
+
+    /**
+     * Get a permission's position in {@link #CATALOGUE}, or -1 if it is not catalogued.
+     */
+    public static int indexOf(String permission) {
+        Integer index = CATALOGUE_INDEX.get(permission);
+        return index != null ? index : -1;
     }
 }
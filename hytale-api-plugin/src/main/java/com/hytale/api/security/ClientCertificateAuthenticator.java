@@ -0,0 +1,116 @@
+package com.hytale.api.security;
+
+import com.hytale.api.config.ApiConfig;
+import com.hytale.api.config.ApiConfig.ClientConfig;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.netty.util.AttributeKey;
+
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.security.auth.x500.X500Principal;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Authenticates mutual-TLS clients once per connection.
+ * After a successful handshake the peer certificate's subject is mapped to a
+ * configured client, and the resulting {@link ClientIdentity} is bound to the
+ * channel so requests on it need no bearer token.
+ */
+@ChannelHandler.Sharable
+public final class ClientCertificateAuthenticator extends ChannelInboundHandlerAdapter {
+    private static final Logger LOGGER = Logger.getLogger(ClientCertificateAuthenticator.class.getName());
+
+    /**
+     * Identity established from the peer certificate, kept separately from any
+     * token-based binding so a bearer token on one request does not replace it.
+     */
+    public static final AttributeKey<ClientIdentity> PEER_IDENTITY_KEY =
+            AttributeKey.valueOf("api.client.peer");
+
+    private final ApiConfig config;
+    private final Map<String, String> subjectToClient = new HashMap<>();
+
+    public ClientCertificateAuthenticator(ApiConfig config) {
+        this.config = config;
+
+        // Normalise DN keys once; keys without '=' are matched against the CN
+        config.tls().effectiveClientCertSubjects().forEach((subject, clientId) -> {
+            String key = subject.contains("=")
+                    ? new X500Principal(subject).getName(X500Principal.RFC2253)
+                    : subject;
+            subjectToClient.put(key, clientId);
+        });
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof SslHandshakeCompletionEvent handshake && handshake.isSuccess()) {
+            authenticate(ctx.channel());
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    private void authenticate(Channel channel) {
+        SslHandler ssl = channel.pipeline().get(SslHandler.class);
+        if (ssl == null) return;
+
+        X509Certificate certificate;
+        try {
+            Certificate[] chain = ssl.engine().getSession().getPeerCertificates();
+            if (chain.length == 0 || !(chain[0] instanceof X509Certificate x509)) return;
+            certificate = x509;
+        } catch (SSLPeerUnverifiedException e) {
+            // No client certificate presented; the client may still use a bearer token
+            return;
+        }
+
+        String subject = certificate.getSubjectX500Principal().getName(X500Principal.RFC2253);
+        String clientId = subjectToClient.get(subject);
+        if (clientId == null) {
+            clientId = subjectToClient.get(commonName(subject));
+        }
+
+        ClientConfig client = clientId != null ? config.findClient(clientId) : null;
+        if (client == null) {
+            LOGGER.warning("Client certificate not mapped to an enabled client: " + subject);
+            return;
+        }
+
+        ClientIdentity identity = new ClientIdentity(
+                client.id(),
+                client.permissions(),
+                Instant.now(),
+                certificate.getNotAfter().toInstant(),
+                "cert:" + certificate.getSerialNumber().toString(16)
+        );
+        channel.attr(PEER_IDENTITY_KEY).set(identity);
+        channel.attr(ClientIdentity.ATTR_KEY).set(identity);
+
+        LOGGER.fine(() -> "mTLS client authenticated: %s (%s)".formatted(client.id(), subject));
+    }
+
+    private static String commonName(String subject) {
+        try {
+            for (Rdn rdn : new LdapName(subject).getRdns()) {
+                if ("CN".equalsIgnoreCase(rdn.getType())) {
+                    return rdn.getValue().toString();
+                }
+            }
+        } catch (InvalidNameException e) {
+            // Fall through; subject is not a parseable DN
+        }
+        return null;
+    }
+}
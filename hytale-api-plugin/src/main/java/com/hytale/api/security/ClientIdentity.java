@@ -15,7 +15,8 @@ public record ClientIdentity(
         Set<String> permissions,
         Instant authenticatedAt,
         Instant tokenExpiry,
-        String tokenId
+        String tokenId,
+        PermissionSet grants
 ) {
     /**
      * Netty attribute key for storing identity on channels.
@@ -23,6 +24,14 @@ public record ClientIdentity(
     public static final AttributeKey<ClientIdentity> ATTR_KEY =
             AttributeKey.valueOf("api.client.identity");
 
+    /**
+     * Create identity, compiling its permissions for fast checks.
+     */
+    public ClientIdentity(String clientId, Set<String> permissions, Instant authenticatedAt,
+                          Instant tokenExpiry, String tokenId) {
+        this(clientId, permissions, authenticatedAt, tokenExpiry, tokenId, PermissionSet.of(permissions));
+    }
+
     /**
      * Create identity from a client configuration and JWT claims.
      */
@@ -36,30 +45,24 @@ public record ClientIdentity(
         );
     }
 
+    /**
+     * Create identity from a successfully validated token.
+     */
+    public static ClientIdentity from(TokenGenerator.ValidatedToken.Valid token) {
+        return new ClientIdentity(
+                token.clientId(),
+                token.permissions(),
+                Instant.now(),
+                token.expiry(),
+                token.tokenId()
+        );
+    }
+
     /**
      * Check if this identity has the specified permission.
      */
     public boolean hasPermission(String permission) {
-        if (permissions == null || permissions.isEmpty()) {
-            return false;
-        }
-        if (permissions.contains("api.*") || permissions.contains("*")) {
-            return true;
-        }
-        if (permissions.contains(permission)) {
-            return true;
-        }
-        // Check wildcard patterns
-        String[] parts = permission.split("\\.");
-        StringBuilder pattern = new StringBuilder();
-        for (int i = 0; i < parts.length - 1; i++) {
-            if (i > 0) pattern.append(".");
-            pattern.append(parts[i]);
-            if (permissions.contains(pattern + ".*")) {
-                return true;
-            }
-        }
-        return false;
+        return grants.has(permission);
     }
 
     /**
@@ -0,0 +1,159 @@
+package com.hytale.api.security;
+
+import com.hytale.api.config.ApiConfig.AuthConfig;
+import com.hytale.api.exception.ApiException;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Verifies client secrets against bcrypt hashes off the Netty event loop.
+ * Checks run on a small bounded pool; when its queue is full new attempts are
+ * rejected instead of piling up. Recent successful checks are cached briefly,
+ * and clients that keep failing are locked out with exponential backoff.
+ */
+public final class CredentialVerifier {
+    private static final Logger LOGGER = Logger.getLogger(CredentialVerifier.class.getName());
+
+    /**
+     * Failures allowed before backoff starts.
+     */
+    private static final int FREE_FAILURES = 3;
+
+    private final AuthConfig config;
+    private final ThreadPoolExecutor executor;
+    private final Map<TokenDigest, Long> recentSuccesses = new ConcurrentHashMap<>();
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+
+    public CredentialVerifier(AuthConfig config) {
+        this.config = config;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = config.effectiveVerifierThreads();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.effectiveVerifierQueueSize()),
+                r -> {
+                    Thread t = new Thread(r, "api-credential-verifier-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Consecutive failures for one client.
+     */
+    private record Failures(int count, long blockedUntilMillis) {}
+
+    /**
+     * Check a presented secret against the stored bcrypt hash.
+     *
+     * @return future completing with whether the secret matched
+     * @throws ApiException.RateLimited if the client is backing off or the pool is saturated
+     */
+    public CompletableFuture<Boolean> verify(String clientId, String secret, String storedHash) {
+        long now = System.currentTimeMillis();
+
+        Failures failed = failures.get(clientId);
+        if (failed != null && failed.blockedUntilMillis() > now) {
+            throw new ApiException.RateLimited(Math.max(1, (failed.blockedUntilMillis() - now + 999) / 1000));
+        }
+
+        // Key covers the stored hash so a changed secret never hits a stale entry
+        TokenDigest key = TokenDigest.of(clientId + '\0' + storedHash + '\0' + secret);
+        Long cachedUntil = recentSuccesses.get(key);
+        if (cachedUntil != null) {
+            if (cachedUntil > now) {
+                return CompletableFuture.completedFuture(true);
+            }
+            recentSuccesses.remove(key, cachedUntil);
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> checkpw(secret, storedHash), executor)
+                    .thenApply(ok -> {
+                        if (ok) {
+                            recordSuccess(clientId, key);
+                        } else {
+                            recordFailure(clientId);
+                        }
+                        return ok;
+                    });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Credential verification queue full, rejecting auth for client: " + clientId);
+            throw new ApiException.RateLimited(1);
+        }
+    }
+
+    /**
+     * Stop the verification pool.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        recentSuccesses.clear();
+    }
+
+    private void recordSuccess(String clientId, TokenDigest key) {
+        failures.remove(clientId);
+        long ttlMillis = config.successCacheSeconds() * 1000L;
+        if (ttlMillis <= 0) return;
+
+        long now = System.currentTimeMillis();
+        if (recentSuccesses.size() >= config.effectiveVerifierQueueSize() * 4) {
+            recentSuccesses.values().removeIf(until -> until <= now);
+        }
+        recentSuccesses.put(key, now + ttlMillis);
+    }
+
+    private void recordFailure(String clientId) {
+        failures.compute(clientId, (id, previous) -> {
+            int count = previous != null ? previous.count() + 1 : 1;
+            if (count <= FREE_FAILURES) {
+                return new Failures(count, 0);
+            }
+            long backoffMillis = Math.min(
+                    1000L << Math.min(count - FREE_FAILURES - 1, 16),
+                    config.effectiveMaxFailureBackoffSeconds() * 1000L);
+            LOGGER.warning("Client %s locked out for %d ms after %d failed attempts"
+                    .formatted(clientId, backoffMillis, count));
+            return new Failures(count, System.currentTimeMillis() + backoffMillis);
+        });
+    }
+
+    /**
+     * Verify password against bcrypt hash using jBCrypt.
+     * Compatible with hashes from htpasswd, bcryptjs, etc.
+     */
+    private static boolean checkpw(String password, String storedHash) {
+        if (password == null || storedHash == null) {
+            return false;
+        }
+
+        try {
+            // Only accept bcrypt hashes for security
+            if (!storedHash.startsWith("$2")) {
+                LOGGER.warning("Invalid password hash format - must be bcrypt");
+                return false;
+            }
+
+            // jBCrypt.checkpw handles $2a$, $2b$, $2y$ prefixes
+            return BCrypt.checkpw(password, storedHash);
+        } catch (Exception e) {
+            LOGGER.warning("Password verification failed: " + e.getMessage());
+            return false;
+        }
+    }
+}
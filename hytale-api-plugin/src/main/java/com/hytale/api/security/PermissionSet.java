@@ -0,0 +1,140 @@
+package com.hytale.api.security;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A client's permission grants compiled for allocation-free checks.
+ * Every permission in {@link ApiPermissions#CATALOGUE} is resolved against the
+ * grants once, into a bitset; checks for catalogued permissions are a map
+ * lookup plus a bit test. Permissions outside the catalogue fall back to
+ * comparing against the exact grants and precomputed wildcard prefixes.
+ */
+public final class PermissionSet {
+    private static final int MAX_CACHED = 256;
+    private static final Map<Set<String>, PermissionSet> COMPILED = new ConcurrentHashMap<>();
+
+    /**
+     * Grants nothing.
+     */
+    public static final PermissionSet EMPTY = new PermissionSet(Set.of());
+
+    private final long[] bits;
+    private final boolean all;
+    private final Set<String> exact;
+    private final Set<String> grants = new Grants();
+    private final String[] prefixes;
+
+    private PermissionSet(Set<String> grants) {
+        this.bits = new long[(ApiPermissions.CATALOGUE.size() + 63) >>> 6];
+        this.exact = Set.copyOf(grants);
+        this.all = grants.contains("*") || grants.contains(ApiPermissions.ALL);
+
+        // "api.admin.*" is stored as "api.admin." so prefix checks need no substring
+        List<String> wildcardPrefixes = new ArrayList<>();
+        for (String grant : grants) {
+            if (grant.endsWith(".*")) {
+                wildcardPrefixes.add(grant.substring(0, grant.length() - 1));
+            }
+        }
+        this.prefixes = wildcardPrefixes.toArray(String[]::new);
+
+        for (int i = 0; i < ApiPermissions.CATALOGUE.size(); i++) {
+            if (matchesSlow(ApiPermissions.CATALOGUE.get(i))) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Compile a set of grants, reusing an earlier compilation of an equal set.
+     */
+    public static PermissionSet of(Set<String> grants) {
+        if (grants instanceof Grants carried) {
+            return carried.compiled();
+        }
+        if (grants == null || grants.isEmpty()) {
+            return EMPTY;
+        }
+        PermissionSet cached = COMPILED.get(grants);
+        if (cached != null) {
+            return cached;
+        }
+        if (COMPILED.size() >= MAX_CACHED) {
+            COMPILED.clear();
+        }
+        PermissionSet compiled = new PermissionSet(grants);
+        COMPILED.put(compiled.exact, compiled);
+        return compiled;
+    }
+
+    /**
+     * Compile grants and return them as an immutable set that carries the
+     * compilation, so {@link #of} on it needs no lookup. For records holding grants.
+     */
+    public static Set<String> compiled(Set<String> grants) {
+        return of(grants).grants;
+    }
+
+    /**
+     * Check if the grants cover a permission.
+     */
+    public boolean has(String permission) {
+        if (permission == null) {
+            return false;
+        }
+        int index = ApiPermissions.indexOf(permission);
+        if (index >= 0) {
+            return (bits[index >>> 6] & (1L << index)) != 0;
+        }
+        return matchesSlow(permission);
+    }
+
+    /**
+     * Whether no permission is granted.
+     */
+    public boolean isEmpty() {
+        return exact.isEmpty();
+    }
+
+    /**
+     * Read-only view of the exact grants that remembers what it was compiled into.
+     */
+    private final class Grants extends AbstractSet<String> {
+        PermissionSet compiled() {
+            return PermissionSet.this;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return exact.iterator();
+        }
+
+        @Override
+        public int size() {
+            return exact.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return exact.contains(o);
+        }
+    }
+
+    private boolean matchesSlow(String permission) {
+        if (all || exact.contains(permission)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (permission.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,251 @@
+package com.hytale.api.security;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Server-side table of opaque, single-use refresh tokens.
+ * Each redemption rotates the token; all tokens descended from one login
+ * share a family so that replaying an already-used token revokes the whole
+ * family. Redeeming a token and issuing its replacement happen under the
+ * family's lock, and a revoked family never gets new tokens, so a concurrent
+ * replay cannot leave a rotated token behind. Only a digest of each token is
+ * stored, and expired entries are swept periodically.
+ */
+public final class RefreshTokenStore {
+    private static final Logger LOGGER = Logger.getLogger(RefreshTokenStore.class.getName());
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final int TOKEN_BYTES = 32;
+
+    private final long validityMillis;
+    private final Map<TokenDigest, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Family> families = new ConcurrentHashMap<>();
+    private final AtomicLong nextFamily = new AtomicLong(RANDOM.nextLong() & Long.MAX_VALUE);
+    private final Duration sweepInterval = Duration.ofMinutes(1);
+    private volatile Instant lastSweep = Instant.now();
+
+    public RefreshTokenStore(int validitySeconds) {
+        this.validityMillis = validitySeconds * 1000L;
+    }
+
+    /**
+     * Stored state for one refresh token.
+     *
+     * @param family        login the token descends from
+     * @param accessTokenId access token issued alongside this refresh token
+     * @param used          whether the token has already been redeemed
+     */
+    private record Entry(
+            String clientId,
+            long family,
+            long expiresAtMillis,
+            String accessTokenId,
+            long accessExpiresAtMillis,
+            boolean used
+    ) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+
+        Entry markUsed() {
+            return new Entry(clientId, family, expiresAtMillis, accessTokenId, accessExpiresAtMillis, true);
+        }
+    }
+
+    /**
+     * Lock and revocation state for one login's tokens; kept until its last token expires.
+     */
+    private static final class Family {
+        final String clientId;
+        long expiresAtMillis;
+        boolean revoked;
+
+        Family(String clientId, long expiresAtMillis) {
+            this.clientId = clientId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * Result of redeeming a refresh token.
+     */
+    public sealed interface Redemption {
+        /**
+         * Token accepted and rotated.
+         *
+         * @param refreshToken replacement refresh token in the same family
+         */
+        record Valid(String clientId, TokenGenerator.TokenResult accessToken, String refreshToken)
+                implements Redemption {}
+
+        record Invalid(String reason) implements Redemption {}
+
+        /**
+         * Token was already used; its family has been revoked.
+         *
+         * @param revokedAccessTokens access tokens issued within the family that are still live
+         */
+        record Replayed(String clientId, Map<String, Instant> revokedAccessTokens) implements Redemption {}
+    }
+
+    /**
+     * Whether refresh tokens are issued at all.
+     */
+    public boolean isEnabled() {
+        return validityMillis > 0;
+    }
+
+    /**
+     * Get refresh token lifetime in seconds.
+     */
+    public int validitySeconds() {
+        return (int) (validityMillis / 1000);
+    }
+
+    /**
+     * Start a new token family for a fresh login.
+     */
+    public long newFamily() {
+        return nextFamily.getAndIncrement();
+    }
+
+    /**
+     * Issue the first refresh token of a new family, paired with the given access token.
+     *
+     * @return the opaque token to hand to the client
+     */
+    public String issue(String clientId, long family, TokenGenerator.TokenResult accessToken) {
+        maybeSweep();
+
+        Family state = families.computeIfAbsent(family,
+                f -> new Family(clientId, System.currentTimeMillis() + validityMillis));
+        synchronized (state) {
+            return state.revoked ? null : add(state, family, accessToken);
+        }
+    }
+
+    /**
+     * Redeem a refresh token and issue its replacement in one step.
+     * Used entries are kept until they expire so replays can be detected.
+     *
+     * @param mint issues the new access token for the token's client ID; may throw
+     *             to refuse, in which case the redeemed token stays used
+     */
+    public Redemption redeem(String token, Function<String, TokenGenerator.TokenResult> mint) {
+        if (token == null || token.isBlank()) {
+            return new Redemption.Invalid("Refresh token required");
+        }
+        maybeSweep();
+
+        TokenDigest key = TokenDigest.of(token);
+        long now = System.currentTimeMillis();
+
+        Entry entry = entries.get(key);
+        Family state = entry != null ? families.get(entry.family()) : null;
+        if (entry == null || state == null || entry.isExpired(now)) {
+            return new Redemption.Invalid("Unknown or expired refresh token");
+        }
+
+        synchronized (state) {
+            if (state.revoked) {
+                return new Redemption.Invalid("Refresh token revoked");
+            }
+            if (entry.used() || !entries.replace(key, entry, entry.markUsed())) {
+                return new Redemption.Replayed(entry.clientId(), revokeFamily(state, entry.family(), now));
+            }
+            TokenGenerator.TokenResult accessToken = mint.apply(entry.clientId());
+            return new Redemption.Valid(entry.clientId(), accessToken, add(state, entry.family(), accessToken));
+        }
+    }
+
+    /**
+     * Remove every refresh token issued to a client.
+     */
+    public void revokeClient(String clientId) {
+        for (Family state : families.values()) {
+            if (state.clientId.equals(clientId)) {
+                synchronized (state) {
+                    state.revoked = true;
+                }
+            }
+        }
+        entries.values().removeIf(e -> e.clientId().equals(clientId));
+    }
+
+    /**
+     * Get number of stored refresh tokens (including used ones awaiting expiry).
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Store a new token in a family. Called with the family's lock held.
+     */
+    private String add(Family state, long family, TokenGenerator.TokenResult accessToken) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = ENCODER.encodeToString(bytes);
+
+        long expiresAt = System.currentTimeMillis() + validityMillis;
+        state.expiresAtMillis = Math.max(state.expiresAtMillis, expiresAt);
+        entries.put(TokenDigest.of(token), new Entry(
+                state.clientId,
+                family,
+                expiresAt,
+                accessToken.tokenId(),
+                accessToken.expiry().toEpochMilli(),
+                false
+        ));
+        return token;
+    }
+
+    /**
+     * Mark a family revoked and remove its tokens. Called with the family's lock held.
+     *
+     * @return live access tokens issued within the family, by token ID with their expiry
+     */
+    private Map<String, Instant> revokeFamily(Family state, long family, long now) {
+        state.revoked = true;
+        List<Entry> removed = new ArrayList<>();
+        entries.values().removeIf(e -> {
+            if (e.family() != family) return false;
+            removed.add(e);
+            return true;
+        });
+
+        Map<String, Instant> accessTokens = new HashMap<>();
+        for (Entry e : removed) {
+            if (e.accessTokenId() != null && e.accessExpiresAtMillis() > now) {
+                accessTokens.put(e.accessTokenId(), Instant.ofEpochMilli(e.accessExpiresAtMillis()));
+            }
+        }
+        LOGGER.warning("Refresh token family revoked after reuse (%d tokens)".formatted(removed.size()));
+        return accessTokens;
+    }
+
+    /**
+     * Drop expired entries at most once per sweep interval.
+     */
+    private void maybeSweep() {
+        Instant now = Instant.now();
+        if (Duration.between(lastSweep, now).compareTo(sweepInterval) > 0) {
+            lastSweep = now;
+            long nowMillis = now.toEpochMilli();
+            entries.values().removeIf(e -> e.isExpired(nowMillis));
+            // Revoked families stay as tombstones until their tokens would have expired
+            families.values().removeIf(f -> nowMillis >= f.expiresAtMillis);
+        }
+    }
+}
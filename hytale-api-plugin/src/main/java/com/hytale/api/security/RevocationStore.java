@@ -0,0 +1,239 @@
+package com.hytale.api.security;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent record of revoked access tokens.
+ * Tokens are revoked individually by token ID (jti), or per client by an
+ * issued-before cutoff. Token issue times are whole seconds (JWT {@code iat}),
+ * so tokens are compared with a cutoff at second precision. A Bloom filter over revoked token IDs answers the
+ * common "not revoked" case without touching the map. Individual revocations
+ * are dropped once the token would have expired anyway.
+ */
+public final class RevocationStore {
+    private static final Logger LOGGER = Logger.getLogger(RevocationStore.class.getName());
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private static final int BLOOM_BITS = 1 << 16;
+    private static final int BLOOM_HASHES = 4;
+
+    private final Path path;
+    private final Map<String, Instant> tokens = new ConcurrentHashMap<>();
+    private final Map<String, Instant> clients = new ConcurrentHashMap<>();
+    private volatile long[] bloom = new long[BLOOM_BITS >>> 6];
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public RevocationStore(Path path) {
+        this.path = path;
+        load();
+    }
+
+    /**
+     * On-disk format: epoch seconds by token ID and by client ID.
+     */
+    private record StoredRevocations(Map<String, Long> tokens, Map<String, Long> clients) {}
+
+    /**
+     * Run a callback after every revocation, e.g. to drop live sessions it covers.
+     */
+    public void onRevoke(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Revoke a single token.
+     *
+     * @param expiry when the token expires; the revocation is kept until then
+     */
+    public synchronized void revokeToken(String tokenId, Instant expiry) {
+        if (tokenId == null) return;
+        sweep();
+        tokens.put(tokenId, expiry != null ? expiry : Instant.MAX);
+
+        // Copy-on-write so lock-free readers always see a complete filter
+        long[] next = bloom.clone();
+        addToBloom(next, tokenId);
+        bloom = next;
+        save();
+        notifyListeners();
+    }
+
+    /**
+     * Revoke every token issued to a client up to now.
+     *
+     * @return the issued-before cutoff
+     */
+    public synchronized Instant revokeClient(String clientId) {
+        Instant cutoff = Instant.now();
+        clients.put(clientId, cutoff);
+        save();
+        notifyListeners();
+        return cutoff;
+    }
+
+    /**
+     * Check a token's claims against the revocation list.
+     */
+    public boolean isRevoked(String tokenId, String clientId, Instant issuedAt) {
+        Instant cutoff = clientCutoff(clientId);
+        if (cutoff != null && (issuedAt == null || issuedAt.getEpochSecond() <= cutoff.getEpochSecond())) {
+            return true;
+        }
+        return isTokenRevoked(tokenId);
+    }
+
+    /**
+     * Check an already-authenticated identity.
+     * Identities created before a client cutoff are treated as revoked; ones created
+     * later were checked against the cutoff when their token was verified.
+     */
+    public boolean isRevoked(ClientIdentity identity) {
+        Instant cutoff = clientCutoff(identity.clientId());
+        if (cutoff != null && !identity.authenticatedAt().isAfter(cutoff)) {
+            return true;
+        }
+        return isTokenRevoked(identity.tokenId());
+    }
+
+    /**
+     * Get the issued-before cutoff for a client, or null if none.
+     */
+    public Instant clientCutoff(String clientId) {
+        return clientId != null && !clients.isEmpty() ? clients.get(clientId) : null;
+    }
+
+    /**
+     * Get number of individually revoked tokens still tracked.
+     */
+    public int revokedTokenCount() {
+        return tokens.size();
+    }
+
+    /**
+     * Get issued-before cutoffs by client ID.
+     */
+    public Map<String, Instant> clientCutoffs() {
+        return Map.copyOf(clients);
+    }
+
+    /**
+     * Drop revocations for tokens that have expired and rebuild the filter.
+     */
+    private void sweep() {
+        Instant now = Instant.now();
+        if (tokens.values().removeIf(now::isAfter)) {
+            rebuildBloom();
+        }
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Revocation listener failed", e);
+            }
+        }
+    }
+
+    private boolean isTokenRevoked(String tokenId) {
+        return tokenId != null && mightContain(bloom, tokenId) && tokens.containsKey(tokenId);
+    }
+
+    private void rebuildBloom() {
+        long[] rebuilt = new long[BLOOM_BITS >>> 6];
+        for (String tokenId : tokens.keySet()) {
+            addToBloom(rebuilt, tokenId);
+        }
+        bloom = rebuilt;
+    }
+
+    private void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(path)) {
+            StoredRevocations stored = GSON.fromJson(reader, StoredRevocations.class);
+            if (stored == null) return;
+
+            Instant now = Instant.now();
+            if (stored.tokens() != null) {
+                stored.tokens().forEach((id, exp) -> {
+                    Instant expiry = exp == Long.MAX_VALUE ? Instant.MAX : Instant.ofEpochSecond(exp);
+                    if (expiry.isAfter(now)) tokens.put(id, expiry);
+                });
+            }
+            if (stored.clients() != null) {
+                stored.clients().forEach((id, cutoff) -> clients.put(id, Instant.ofEpochSecond(cutoff)));
+            }
+            rebuildBloom();
+            LOGGER.info("Loaded %d token and %d client revocations".formatted(tokens.size(), clients.size()));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to load revocations from " + path, e);
+        }
+    }
+
+    private void save() {
+        Map<String, Long> storedTokens = new HashMap<>();
+        tokens.forEach((id, exp) -> storedTokens.put(id, exp.equals(Instant.MAX) ? Long.MAX_VALUE : exp.getEpochSecond()));
+        Map<String, Long> storedClients = new HashMap<>();
+        clients.forEach((id, cutoff) -> storedClients.put(id, cutoff.getEpochSecond()));
+
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(tmp, GSON.toJson(new StoredRevocations(storedTokens, storedClients)));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to persist revocations to " + path, e);
+        }
+    }
+
+    private static void addToBloom(long[] bits, String tokenId) {
+        int h1 = tokenId.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static boolean mightContain(long[] bits, String tokenId) {
+        int h1 = tokenId.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Second, independent-enough hash derived from the first (murmur3 finalizer).
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
@@ -3,9 +3,21 @@ package com.hytale.api.security;
 import com.hytale.api.config.ApiConfig;
 import com.hytale.api.config.ApiConfig.ClientConfig;
 import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Signer;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
 import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
 import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
@@ -13,48 +25,76 @@ import com.nimbusds.jwt.SignedJWT;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * JWT token generation and validation using RSA256.
+ * JWT token generation and validation.
+ * Supports RS256, ES256 and EdDSA (Ed25519) signing keys with scheduled
+ * rotation; retired keys keep verifying tokens for a grace period.
  * Uses Nimbus JOSE library bundled with Hytale server.
  */
 public final class TokenGenerator {
     private static final Logger LOGGER = Logger.getLogger(TokenGenerator.class.getName());
+    private static final String REVOCATIONS_FILE = "revocations.json";
 
     private final ApiConfig.JwtConfig config;
-    private final RSAKey rsaKey;
-    private final JWSSigner signer;
-    private final JWSVerifier verifier;
+    private final Path keyPath;
+    private final JWSAlgorithm algorithm;
+    private final Map<String, SigningKey> keys = new ConcurrentHashMap<>();
+    private final VerifiedTokenCache verifiedTokens;
+    private final RefreshTokenStore refreshTokens;
+    private final RevocationStore revocations;
+    private volatile SigningKey activeKey;
+    private volatile String publicJwks;
 
     public TokenGenerator(ApiConfig.JwtConfig config, Path keyPath) throws Exception {
         this.config = config;
+        this.keyPath = keyPath;
+        this.algorithm = effectiveAlgorithm(parseAlgorithm(config.algorithm()));
 
-        // Load or generate RSA key pair
+        // Load existing key set (or a legacy single-key file)
         if (Files.exists(keyPath)) {
-            LOGGER.info("Loading existing RSA key from " + keyPath);
-            String keyJson = Files.readString(keyPath);
-            this.rsaKey = RSAKey.parse(keyJson);
+            LOGGER.info("Loading existing signing keys from " + keyPath);
+            Instant now = Instant.now();
+            Instant modified = Files.getLastModifiedTime(keyPath).toInstant();
+            for (JWK jwk : loadKeys(Files.readString(keyPath))) {
+                try {
+                    SigningKey key = SigningKey.of(jwk, modified);
+                    if (!key.isRetired(now)) {
+                        keys.put(key.keyId(), key);
+                    }
+                } catch (JOSEException e) {
+                    LOGGER.warning("Skipping signing key %s: %s".formatted(jwk.getKeyID(), e.getMessage()));
+                }
+            }
+        }
+
+        this.activeKey = keys.values().stream()
+                .filter(k -> k.algorithm().equals(algorithm) && k.retiresAt() == null)
+                .max(Comparator.comparing(SigningKey::createdAt))
+                .orElse(null);
+
+        if (activeKey == null) {
+            rotateKeys();
         } else {
-            LOGGER.info("Generating new RSA key pair");
-            this.rsaKey = new RSAKeyGenerator(2048)
-                    .keyID(UUID.randomUUID().toString())
-                    .generate();
-            // Save for future use
-            Files.createDirectories(keyPath.getParent());
-            Files.writeString(keyPath, rsaKey.toJSONString());
-            LOGGER.info("RSA key saved to " + keyPath);
+            rebuildPublicJwks();
+            LOGGER.info("Using %s signing key %s".formatted(activeKey.algorithm(), activeKey.keyId()));
         }
 
-        this.signer = new RSASSASigner(rsaKey);
-        this.verifier = new RSASSAVerifier((RSAPublicKey) rsaKey.toPublicKey());
+        this.verifiedTokens = new VerifiedTokenCache(config.effectiveVerifiedTokenCacheSize());
+        this.refreshTokens = new RefreshTokenStore(config.refreshTokenValiditySeconds());
+        this.revocations = new RevocationStore(keyPath.resolveSibling(REVOCATIONS_FILE));
     }
 
     /**
@@ -65,24 +105,33 @@ public final class TokenGenerator {
         Instant now = Instant.now();
         Instant expiry = now.plusSeconds(config.tokenValiditySeconds());
 
+        // iat is whole seconds and a client cutoff revokes its own second, so a token
+        // issued later in that second is stamped with the next one to stay valid
+        Instant issuedAt = now;
+        Instant cutoff = revocations.clientCutoff(client.id());
+        if (cutoff != null && cutoff.getEpochSecond() == now.getEpochSecond()) {
+            issuedAt = Instant.ofEpochSecond(now.getEpochSecond() + 1);
+        }
+
         JWTClaimsSet claims = new JWTClaimsSet.Builder()
                 .jwtID(tokenId)
                 .issuer(config.issuer())
                 .audience(config.audience())
                 .subject(client.id())
                 .claim("permissions", client.permissions())
-                .issueTime(Date.from(now))
+                .issueTime(Date.from(issuedAt))
                 .expirationTime(Date.from(expiry))
                 .build();
 
         try {
+            SigningKey key = currentSigningKey(now);
             SignedJWT signedJWT = new SignedJWT(
-                    new JWSHeader.Builder(JWSAlgorithm.RS256)
-                            .keyID(rsaKey.getKeyID())
+                    new JWSHeader.Builder(key.algorithm())
+                            .keyID(key.keyId())
                             .build(),
                     claims
             );
-            signedJWT.sign(signer);
+            signedJWT.sign(key.signer());
 
             return new TokenResult(
                     signedJWT.serialize(),
@@ -98,13 +147,25 @@ public final class TokenGenerator {
 
     /**
      * Validate and parse a JWT token.
+     * Always performs full signature verification; callers on the request path
+     * should consult {@link #getVerifiedTokenCache()} first.
      */
     public ValidatedToken validateToken(String token) {
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
+            JWSHeader header = signedJWT.getHeader();
+
+            // Select verification key by kid; tokens without one use the active key
+            SigningKey key = header.getKeyID() != null ? keys.get(header.getKeyID()) : activeKey;
+            if (key == null || key.isRetired(Instant.now())) {
+                return ValidatedToken.invalid("Unknown signing key");
+            }
+            if (!key.algorithm().equals(header.getAlgorithm())) {
+                return ValidatedToken.invalid("Algorithm mismatch");
+            }
 
             // Verify signature
-            if (!signedJWT.verify(verifier)) {
+            if (!signedJWT.verify(key.verifier())) {
                 return ValidatedToken.invalid("Invalid signature");
             }
 
@@ -128,10 +189,12 @@ public final class TokenGenerator {
                     ? Set.copyOf(permissionsList.stream().map(Object::toString).toList())
                     : Set.of();
 
+            Date issued = claims.getIssueTime();
             return ValidatedToken.valid(
                     claims.getJWTID(),
                     claims.getSubject(),
                     permissions,
+                    issued != null ? issued.toInstant() : null,
                     expiration.toInstant()
             );
 
@@ -156,6 +219,15 @@ public final class TokenGenerator {
                     {"access_token":"%s","token_type":"Bearer","expires_in":%d}"""
                     .formatted(accessToken, expiresIn);
         }
+
+        public String toJson(String refreshToken, int refreshExpiresIn) {
+            if (refreshToken == null) {
+                return toJson();
+            }
+            return """
+                    {"access_token":"%s","token_type":"Bearer","expires_in":%d,"refresh_token":"%s","refresh_expires_in":%d}"""
+                    .formatted(accessToken, expiresIn, refreshToken, refreshExpiresIn);
+        }
     }
 
     /**
@@ -166,6 +238,7 @@ public final class TokenGenerator {
                 String tokenId,
                 String clientId,
                 Set<String> permissions,
+                Instant issuedAt,
                 Instant expiry
         ) implements ValidatedToken {}
 
@@ -173,8 +246,9 @@ public final class TokenGenerator {
 
         record Expired() implements ValidatedToken {}
 
-        static ValidatedToken valid(String tokenId, String clientId, Set<String> permissions, Instant expiry) {
-            return new Valid(tokenId, clientId, permissions, expiry);
+        static ValidatedToken valid(String tokenId, String clientId, Set<String> permissions,
+                                    Instant issuedAt, Instant expiry) {
+            return new Valid(tokenId, clientId, permissions, issuedAt, expiry);
         }
 
         static ValidatedToken invalid(String reason) {
@@ -187,9 +261,283 @@ public final class TokenGenerator {
     }
 
     /**
-     * Get the public key in JWK format for external verification.
+     * Get the cache of already-verified tokens.
+     */
+    public VerifiedTokenCache getVerifiedTokenCache() {
+        return verifiedTokens;
+    }
+
+    /**
+     * Get the server-side refresh token table.
+     */
+    public RefreshTokenStore getRefreshTokenStore() {
+        return refreshTokens;
+    }
+
+    /**
+     * Get the persistent token revocation list.
+     */
+    public RevocationStore getRevocationStore() {
+        return revocations;
+    }
+
+    /**
+     * Revoke an issued token before it expires.
+     */
+    public void revokeToken(String tokenId, Instant expiry) {
+        revocations.revokeToken(tokenId, expiry);
+        verifiedTokens.invalidate(tokenId);
+        LOGGER.info("Token revoked: " + tokenId);
+    }
+
+    /**
+     * Revoke every token issued to a client so far, including refresh tokens.
+     *
+     * @return the issued-before cutoff
+     */
+    public Instant revokeClient(String clientId) {
+        Instant cutoff = revocations.revokeClient(clientId);
+        verifiedTokens.invalidateClient(clientId);
+        refreshTokens.revokeClient(clientId);
+        LOGGER.info("All tokens revoked for client: " + clientId);
+        return cutoff;
+    }
+
+    /**
+     * Check whether a verified token has been revoked.
+     */
+    public boolean isRevoked(ValidatedToken.Valid token) {
+        return revocations.isRevoked(token.tokenId(), token.clientId(), token.issuedAt());
+    }
+
+    /**
+     * Get the active public key in JWK format for external verification.
      */
     public String getPublicKeyJwk() {
-        return rsaKey.toPublicJWK().toJSONString();
+        return activeKey.jwk().toPublicJWK().toJSONString();
+    }
+
+    /**
+     * Get every key that can still verify tokens as a public JWK set.
+     */
+    public String getPublicJwks() {
+        Instant now = Instant.now();
+        currentSigningKey(now);
+        dropRetiredKeys(now);
+        return publicJwks;
+    }
+
+    /**
+     * Drop keys whose grace period has ended so they stop being published.
+     * The key file is rewritten without them at the next rotation.
+     */
+    private void dropRetiredKeys(Instant now) {
+        for (SigningKey key : keys.values()) {
+            if (key.isRetired(now)) {
+                synchronized (this) {
+                    if (keys.values().removeIf(k -> k.isRetired(now))) {
+                        rebuildPublicJwks();
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Return the active signing key, rotating first if it is due.
+     */
+    private SigningKey currentSigningKey(Instant now) {
+        SigningKey key = activeKey;
+        int rotationHours = config.keyRotationHours();
+        if (rotationHours <= 0 || now.isBefore(key.createdAt().plusSeconds(rotationHours * 3600L))) {
+            return key;
+        }
+        synchronized (this) {
+            if (activeKey == key) {
+                try {
+                    rotateKeys();
+                } catch (JOSEException | IOException e) {
+                    LOGGER.log(Level.WARNING, "Key rotation failed, keeping current key", e);
+                }
+            }
+            return activeKey;
+        }
+    }
+
+    /**
+     * Generate a new signing key and retire the current one after the grace period.
+     * Keys whose grace period has already ended are dropped.
+     */
+    private synchronized void rotateKeys() throws JOSEException, IOException {
+        Instant now = Instant.now();
+        Instant retiresAt = now.plusSeconds(config.effectiveKeyGracePeriodSeconds());
+
+        keys.values().removeIf(k -> k.isRetired(now));
+        keys.replaceAll((kid, k) -> k.retiresAt() == null ? k.retire(retiresAt) : k);
+
+        SigningKey next = SigningKey.of(generateKey(now), now);
+        keys.put(next.keyId(), next);
+        activeKey = next;
+
+        saveKeys();
+        rebuildPublicJwks();
+        LOGGER.info("Generated new %s signing key %s".formatted(next.algorithm(), next.keyId()));
+    }
+
+    /**
+     * Resolve the algorithm keys are actually generated with.
+     * Ed25519 signing needs Tink on the classpath; falls back to ES256 without it,
+     * so the active key lookup on restart matches the keys that were generated.
+     */
+    private static JWSAlgorithm effectiveAlgorithm(JWSAlgorithm requested) {
+        if (!JWSAlgorithm.EdDSA.equals(requested)) {
+            return requested;
+        }
+        try {
+            new Ed25519Signer(new OctetKeyPairGenerator(Curve.Ed25519).generate());
+            return requested;
+        } catch (JOSEException | LinkageError e) {
+            LOGGER.warning("Ed25519 unavailable (" + e + "), falling back to ES256");
+            return JWSAlgorithm.ES256;
+        }
+    }
+
+    /**
+     * Generate a key pair for the effective algorithm.
+     */
+    private JWK generateKey(Instant now) throws JOSEException {
+        String keyId = UUID.randomUUID().toString();
+        Date issued = Date.from(now);
+
+        if (JWSAlgorithm.EdDSA.equals(algorithm)) {
+            return new OctetKeyPairGenerator(Curve.Ed25519)
+                    .keyID(keyId)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.EdDSA)
+                    .issueTime(issued)
+                    .generate();
+        }
+        if (JWSAlgorithm.ES256.equals(algorithm)) {
+            return generateEcKey(keyId, issued);
+        }
+        return new RSAKeyGenerator(2048)
+                .keyID(keyId)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.RS256)
+                .issueTime(issued)
+                .generate();
+    }
+
+    private static JWK generateEcKey(String keyId, Date issued) throws JOSEException {
+        return new ECKeyGenerator(Curve.P_256)
+                .keyID(keyId)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.ES256)
+                .issueTime(issued)
+                .generate();
+    }
+
+    /**
+     * Persist the full (private) key set.
+     */
+    private void saveKeys() throws IOException {
+        List<JWK> jwks = new ArrayList<>();
+        for (SigningKey key : keys.values()) {
+            jwks.add(key.jwk());
+        }
+        Files.createDirectories(keyPath.getParent());
+        Files.writeString(keyPath, new JWKSet(jwks).toString(false));
+        LOGGER.info("Signing keys saved to " + keyPath);
+    }
+
+    private void rebuildPublicJwks() {
+        List<JWK> jwks = new ArrayList<>();
+        for (SigningKey key : keys.values()) {
+            jwks.add(key.jwk().toPublicJWK());
+        }
+        publicJwks = new JWKSet(jwks).toString();
+    }
+
+    /**
+     * Parse a stored JWK set, accepting the legacy single-key file format.
+     */
+    private static List<JWK> loadKeys(String json) throws ParseException {
+        try {
+            return JWKSet.parse(json).getKeys();
+        } catch (ParseException e) {
+            return List.of(JWK.parse(json));
+        }
+    }
+
+    private static JWSAlgorithm parseAlgorithm(String name) {
+        if (name == null) return JWSAlgorithm.RS256;
+        return switch (name.toUpperCase()) {
+            case "RS256" -> JWSAlgorithm.RS256;
+            case "ES256" -> JWSAlgorithm.ES256;
+            case "EDDSA", "ED25519" -> JWSAlgorithm.EdDSA;
+            default -> {
+                LOGGER.warning("Unsupported JWT algorithm '" + name + "', using RS256");
+                yield JWSAlgorithm.RS256;
+            }
+        };
+    }
+
+    /**
+     * A verification key with its prepared signer and verifier.
+     *
+     * @param retiresAt when the key stops verifying tokens, or null while it signs new ones
+     */
+    private record SigningKey(
+            JWK jwk,
+            JWSAlgorithm algorithm,
+            JWSSigner signer,
+            JWSVerifier verifier,
+            Instant createdAt,
+            Instant retiresAt
+    ) {
+        static SigningKey of(JWK jwk, Instant fallbackCreatedAt) throws JOSEException {
+            Instant createdAt = jwk.getIssueTime() != null ? jwk.getIssueTime().toInstant() : fallbackCreatedAt;
+            Instant retiresAt = jwk.getExpirationTime() != null ? jwk.getExpirationTime().toInstant() : null;
+
+            return switch (jwk) {
+                case RSAKey rsa -> new SigningKey(jwk, JWSAlgorithm.RS256,
+                        new RSASSASigner(rsa), new RSASSAVerifier(rsa.toRSAPublicKey()), createdAt, retiresAt);
+                case ECKey ec -> new SigningKey(jwk, JWSAlgorithm.ES256,
+                        new ECDSASigner(ec), new ECDSAVerifier(ec.toPublicJWK()), createdAt, retiresAt);
+                case OctetKeyPair okp -> {
+                    try {
+                        yield new SigningKey(jwk, JWSAlgorithm.EdDSA,
+                                new Ed25519Signer(okp), new Ed25519Verifier(okp.toPublicJWK()), createdAt, retiresAt);
+                    } catch (LinkageError e) {
+                        // Tink missing from the classpath
+                        throw new JOSEException("Ed25519 unavailable: " + e);
+                    }
+                }
+                default -> throw new JOSEException("Unsupported key type: " + jwk.getKeyType());
+            };
+        }
+
+        String keyId() {
+            return jwk.getKeyID();
+        }
+
+        boolean isRetired(Instant now) {
+            return retiresAt != null && now.isAfter(retiresAt);
+        }
+
+        /**
+         * Copy of this key that expires at the given time (persisted as the JWK "exp").
+         */
+        SigningKey retire(Instant at) {
+            Date exp = Date.from(at);
+            JWK retired = switch (jwk) {
+                case RSAKey rsa -> new RSAKey.Builder(rsa).expirationTime(exp).build();
+                case ECKey ec -> new ECKey.Builder(ec).expirationTime(exp).build();
+                case OctetKeyPair okp -> new OctetKeyPair.Builder(okp).expirationTime(exp).build();
+                default -> jwk;
+            };
+            return new SigningKey(retired, algorithm, signer, verifier, createdAt, at);
+        }
     }
 }
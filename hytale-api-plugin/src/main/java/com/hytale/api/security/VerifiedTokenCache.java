@@ -0,0 +1,91 @@
+package com.hytale.api.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of already-verified access tokens.
+ * Keyed by a SHA-256 digest of the raw token so repeat requests with the same
+ * bearer token skip JWT parsing and signature verification. Entries are
+ * evicted once the token expires, and can be invalidated early when a token
+ * or client is revoked (see {@link RevocationStore}).
+ */
+public final class VerifiedTokenCache {
+    private final int maxEntries;
+    private final Map<TokenDigest, ClientIdentity> entries = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Get the identity for a previously verified token.
+     *
+     * @return the cached identity, or null if the token is unknown or expired
+     */
+    public ClientIdentity get(String token) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        TokenDigest key = TokenDigest.of(token);
+        ClientIdentity identity = entries.get(key);
+        if (identity == null) {
+            return null;
+        }
+        if (identity.isExpired()) {
+            entries.remove(key, identity);
+            return null;
+        }
+        return identity;
+    }
+
+    /**
+     * Cache the identity resolved from a freshly verified token.
+     *
+     * @return the identity, for chaining
+     */
+    public ClientIdentity put(String token, ClientIdentity identity) {
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(TokenDigest.of(token), identity);
+        return identity;
+    }
+
+    /**
+     * Drop any cached entry for a token ID.
+     */
+    public void invalidate(String tokenId) {
+        if (tokenId == null) return;
+        entries.values().removeIf(identity -> tokenId.equals(identity.tokenId()));
+    }
+
+    /**
+     * Drop all cached entries for a client.
+     */
+    public void invalidateClient(String clientId) {
+        if (clientId == null) return;
+        entries.values().removeIf(identity -> clientId.equals(identity.clientId()));
+    }
+
+    /**
+     * Get number of cached tokens.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drop expired entries, then arbitrary entries until below capacity.
+     */
+    private void evict() {
+        entries.values().removeIf(ClientIdentity::isExpired);
+
+        Iterator<TokenDigest> it = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
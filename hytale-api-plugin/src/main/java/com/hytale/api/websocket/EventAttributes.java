@@ -0,0 +1,35 @@
+package com.hytale.api.websocket;
+
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * What subscription filters can see of an event, captured before its payload is built.
+ * Any attribute may be null when the event does not carry it.
+ *
+ * @param level   log record level
+ * @param logger  log record logger name
+ * @param world   world the event happened in
+ * @param player  player the event is about
+ * @param message log or chat text
+ */
+public record EventAttributes(
+        Level level,
+        String logger,
+        String world,
+        UUID player,
+        String message
+) {
+    /**
+     * An event with no filterable attributes.
+     */
+    public static final EventAttributes NONE = new EventAttributes(null, null, null, null, null);
+
+    public static EventAttributes log(Level level, String logger, String message) {
+        return new EventAttributes(level, logger, null, null, message);
+    }
+
+    public static EventAttributes player(UUID player, String world, String message) {
+        return new EventAttributes(null, null, world, player, message);
+    }
+}
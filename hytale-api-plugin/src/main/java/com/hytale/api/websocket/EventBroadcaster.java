@@ -11,6 +11,11 @@ import com.hypixel.hytale.server.core.event.events.ecs.ChangeGameModeEvent;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.Universe;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -28,13 +33,29 @@ public final class EventBroadcaster {
     private final ApiConfig config;
     private final WebSocketSessionManager sessionManager;
     private final ScheduledExecutorService scheduler;
+    private final StatusStream statusStream;
+    private final PositionStream positionStream;
     private ScheduledFuture<?> statusBroadcastTask;
+    private ScheduledFuture<?> positionTask;
 
     public EventBroadcaster(ApiConfig config, WebSocketSessionManager sessionManager) {
         this.config = config;
         this.sessionManager = sessionManager;
         // Use virtual threads for efficiency (Java 21+)
         this.scheduler = Executors.newScheduledThreadPool(1, Thread.ofVirtual().factory());
+
+        int intervalSeconds = config.websocket().statusBroadcastIntervalSeconds();
+        this.statusStream = intervalSeconds > 0
+                ? new StatusStream(sessionManager, EventBroadcaster::sampleServerStatus,
+                        intervalSeconds * 1000L,
+                        config.websocket().effectiveStatusKeyframeIntervalSeconds() * 1000L)
+                : null;
+
+        var positions = config.websocket().effectivePositions();
+        this.positionStream = positions.enabled()
+                ? new PositionStream(sessionManager, EventBroadcaster::samplePositions,
+                        positions.effectiveSampleRateHz(), positions.effectiveMinMoveDistance())
+                : null;
     }
 
     /**
@@ -63,39 +84,62 @@ public final class EventBroadcaster {
 
         // Start periodic status broadcast
         startStatusBroadcast();
+        startPositionStream();
     }
 
     /**
-     * Start periodic server status broadcasts.
+     * Start the server status stream.
+     * Subscribers get a keyframe on subscribe, then deltas on their own interval.
      */
     private void startStatusBroadcast() {
-        int intervalSeconds = config.websocket().statusBroadcastIntervalSeconds();
-        if (intervalSeconds <= 0) return;
+        if (statusStream == null) return;
 
+        sessionManager.onSubscribe(StatusStream.EVENT_TYPE, statusStream::sendKeyframe);
         statusBroadcastTask = scheduler.scheduleAtFixedRate(
-                this::broadcastServerStatus,
-                intervalSeconds,
-                intervalSeconds,
-                TimeUnit.SECONDS
+                statusStream::tick,
+                StatusStream.TICK_MS,
+                StatusStream.TICK_MS,
+                TimeUnit.MILLISECONDS
         );
 
-        LOGGER.info("Status broadcast started with %d second interval".formatted(intervalSeconds));
+        LOGGER.info("Status stream started with %d second default interval"
+                .formatted(config.websocket().statusBroadcastIntervalSeconds()));
+    }
+
+    /**
+     * Start sampling player positions for player.position subscribers.
+     */
+    private void startPositionStream() {
+        if (positionStream == null) return;
+
+        // A new or changed subscription gets every visible player on its next update
+        sessionManager.onSubscribe(PositionStream.EVENT_TYPE, positionStream::reset);
+        positionTask = scheduler.scheduleAtFixedRate(
+                positionStream::tick,
+                positionStream.periodMillis(),
+                positionStream.periodMillis(),
+                TimeUnit.MILLISECONDS
+        );
+
+        LOGGER.info("Position stream started with %d ms sample period".formatted(positionStream.periodMillis()));
     }
 
     /**
      * Handle player connection event.
      */
     private void onPlayerConnect(PlayerConnectEvent event) {
-        var playerRef = event.getPlayerRef();
+        if (!sessionManager.hasListeners("player.connect")) return;
 
-        String payload = """
-                {"uuid":"%s","name":"%s"}"""
-                .formatted(
-                        playerRef.getUuid(),
-                        escapeJson(playerRef.getUsername())
-                );
+        var playerRef = event.getPlayerRef();
 
-        sessionManager.broadcast("player.connect", payload);
+        sessionManager.broadcast("player.connect",
+                EventAttributes.player(playerRef.getUuid(), null, null),
+                () -> """
+                        {"uuid":"%s","name":"%s"}"""
+                        .formatted(
+                                playerRef.getUuid(),
+                                escapeJson(playerRef.getUsername())
+                        ));
     }
 
     /**
@@ -103,92 +147,109 @@ public final class EventBroadcaster {
      */
     @SuppressWarnings("removal") // Entity.getUuid() deprecated but no replacement available yet
     private void onPlayerReady(PlayerReadyEvent event) {
+        if (!sessionManager.hasListeners("player.join")) return;
+
         Player player = event.getPlayer();
         var world = player.getWorld();
-
-        String payload = """
-                {"uuid":"%s","name":"%s","world":"%s"}"""
-                .formatted(
-                        player.getUuid(),
-                        "Player", // Player entity may not have direct name access
-                        world != null ? escapeJson(world.getName()) : "unknown"
-                );
-
-        sessionManager.broadcast("player.join", payload);
+        String worldName = world != null ? world.getName() : null;
+
+        sessionManager.broadcast("player.join",
+                EventAttributes.player(player.getUuid(), worldName, null),
+                () -> """
+                        {"uuid":"%s","name":"%s","world":"%s"}"""
+                        .formatted(
+                                player.getUuid(),
+                                "Player", // Player entity may not have direct name access
+                                worldName != null ? escapeJson(worldName) : "unknown"
+                        ));
     }
 
     /**
      * Handle player disconnect event.
      */
     private void onPlayerDisconnect(PlayerDisconnectEvent event) {
+        if (!sessionManager.hasListeners("player.leave")) return;
+
         var playerRef = event.getPlayerRef();
         var reason = event.getDisconnectReason();
 
-        String payload = """
-                {"uuid":"%s","name":"%s","reason":"%s"}"""
-                .formatted(
-                        playerRef.getUuid(),
-                        escapeJson(playerRef.getUsername()),
-                        escapeJson(reason != null ? reason.toString() : "DISCONNECTED")
-                );
+        sessionManager.broadcast("player.leave",
+                EventAttributes.player(playerRef.getUuid(), worldName(playerRef), null),
+                () -> """
+                        {"uuid":"%s","name":"%s","reason":"%s"}"""
+                        .formatted(
+                                playerRef.getUuid(),
+                                escapeJson(playerRef.getUsername()),
+                                escapeJson(reason != null ? reason.toString() : "DISCONNECTED")
+                        ));
+    }
 
-        sessionManager.broadcast("player.leave", payload);
+    /**
+     * Sample the server state reported on server.status.
+     */
+    private static StatusStream.Snapshot sampleServerStatus() {
+        HytaleServer server = HytaleServer.get();
+        Universe universe = Universe.get();
+        Runtime runtime = Runtime.getRuntime();
+
+        return new StatusStream.Snapshot(
+                server.getServerName(),
+                universe.getPlayerCount(),
+                server.getConfig().getMaxPlayers(),
+                System.currentTimeMillis() - server.getBoot().toEpochMilli(),
+                runtime.totalMemory() - runtime.freeMemory(),
+                runtime.maxMemory()
+        );
     }
 
     /**
-     * Broadcast server status to all subscribed clients.
+     * Sample every online player's position.
      */
-    private void broadcastServerStatus() {
-        try {
-            if (sessionManager.getSessionCount() == 0) return;
-
-            HytaleServer server = HytaleServer.get();
-            Universe universe = Universe.get();
-            Runtime runtime = Runtime.getRuntime();
-
-            long uptime = System.currentTimeMillis() - server.getBoot().toEpochMilli();
-            long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-
-            String payload = """
-                    {"name":"%s","players":%d,"maxPlayers":%d,"uptime":%d,"memory":{"used":%d,"max":%d}}"""
-                    .formatted(
-                            escapeJson(server.getServerName()),
-                            universe.getPlayerCount(),
-                            server.getConfig().getMaxPlayers(),
-                            uptime,
-                            usedMemory,
-                            runtime.maxMemory()
-                    );
-
-            sessionManager.broadcast("server.status", payload);
-
-        } catch (Exception e) {
-            LOGGER.warning("Status broadcast failed: " + e.getMessage());
+    private static List<PositionStream.Sample> samplePositions() {
+        Universe universe = Universe.get();
+        Map<UUID, String> worldNames = new HashMap<>();
+        List<PositionStream.Sample> samples = new ArrayList<>();
+
+        for (PlayerRef playerRef : universe.getPlayers()) {
+            var pos = playerRef.getTransform().getPosition();
+            var worldUuid = playerRef.getWorldUuid();
+            String world = worldUuid != null
+                    ? worldNames.computeIfAbsent(worldUuid, id -> {
+                        var w = universe.getWorld(id);
+                        return w != null ? w.getName() : null;
+                    })
+                    : null;
+            samples.add(new PositionStream.Sample(playerRef.getUuid(), world, pos.getX(), pos.getY(), pos.getZ()));
         }
+        return samples;
     }
 
     /**
      * Handle player chat event.
      */
     private void onPlayerChat(PlayerChatEvent event) {
+        if (!sessionManager.hasListeners("player.chat")) return;
+
         var playerRef = event.getSender();
         String content = event.getContent();
 
-        String payload = """
-                {"uuid":"%s","name":"%s","message":"%s"}"""
-                .formatted(
-                        playerRef.getUuid(),
-                        escapeJson(playerRef.getUsername()),
-                        escapeJson(content)
-                );
-
-        sessionManager.broadcast("player.chat", payload);
+        sessionManager.broadcast("player.chat",
+                EventAttributes.player(playerRef.getUuid(), worldName(playerRef), content),
+                () -> """
+                        {"uuid":"%s","name":"%s","message":"%s"}"""
+                        .formatted(
+                                playerRef.getUuid(),
+                                escapeJson(playerRef.getUsername()),
+                                escapeJson(content)
+                        ));
     }
 
     /**
      * Handle game mode change event.
      */
     private void onPlayerGameModeChange(ChangeGameModeEvent event) {
+        if (!sessionManager.hasListeners("player.gamemode")) return;
+
         // TODO: Extract player info and game mode from event
         String payload = """
                 {"gameMode":"%s"}"""
@@ -205,6 +266,8 @@ public final class EventBroadcaster {
      */
     @SuppressWarnings("removal")
     private void onEntityRemove(EntityRemoveEvent event) {
+        if (!sessionManager.hasListeners("entity.remove")) return;
+
         var entity = event.getEntity();
 
         String payload = """
@@ -227,6 +290,9 @@ public final class EventBroadcaster {
         if (statusBroadcastTask != null) {
             statusBroadcastTask.cancel(false);
         }
+        if (positionTask != null) {
+            positionTask.cancel(false);
+        }
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -241,6 +307,15 @@ public final class EventBroadcaster {
 
     // Utility methods
 
+    /**
+     * Name of the world a player is in, or null if unknown.
+     */
+    private static String worldName(PlayerRef playerRef) {
+        var worldUuid = playerRef.getWorldUuid();
+        var world = worldUuid != null ? Universe.get().getWorld(worldUuid) : null;
+        return world != null ? world.getName() : null;
+    }
+
     private static String escapeJson(String s) {
         if (s == null) return "";
         return s.replace("\\", "\\\\")
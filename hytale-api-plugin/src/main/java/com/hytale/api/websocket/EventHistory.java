@@ -0,0 +1,232 @@
+package com.hytale.api.websocket;
+
+import com.hytale.api.config.ApiConfig.WebSocketConfig.ReplayConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recent broadcast events per event type, for clients resuming after a reconnect.
+ *
+ * <p>Every broadcast event gets a sequence number from one counter. Sequence
+ * numbers start at the boot time in microseconds, so numbers from before a
+ * restart always compare lower and read as a gap. Each recorded event type has
+ * a ring bounded by count and bytes; the ring remembers the highest sequence
+ * number it has lost (evicted, or issued before it started recording or while
+ * recording was paused) so a resume from before that point is reported as a
+ * gap rather than silently skipped.
+ */
+final class EventHistory {
+    private final int maxEvents;
+    private final long maxBytes;
+    private final long retentionMillis;
+    private final Set<String> excluded;
+
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final Map<String, Long> retainedUntil = new ConcurrentHashMap<>();
+
+    EventHistory(ReplayConfig config) {
+        this.maxEvents = config.effectiveMaxEventsPerTopic();
+        this.maxBytes = config.effectiveMaxBytesPerTopic();
+        this.retentionMillis = config.effectiveRetentionSeconds() * 1000L;
+        this.excluded = config.effectiveExcludedTopics();
+    }
+
+    /**
+     * One recorded event: its envelope bytes and what filters need to see.
+     */
+    record Entry(long seq, String eventType, EventAttributes attributes, byte[] envelope) {}
+
+    /**
+     * Events after a resume point, and the highest sequence number that may be missing.
+     *
+     * @param lostThrough events up to this number could not be replayed, or 0 if none were lost
+     * @param floors      per event type, the last sequence number included; live events at
+     *                    or below it were already replayed
+     */
+    record Replay(List<Entry> entries, long lostThrough, Map<String, Long> floors) {}
+
+    /**
+     * A recorded event's sequence number and encoded envelope, owned by the caller.
+     */
+    record Recorded(long seq, ByteBuf envelope) {}
+
+    /**
+     * Bounded history of one event type. Sequence numbers are issued under its
+     * lock, so entries are in order.
+     */
+    final class Ring {
+        private final String eventType;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private long bytes;
+        private long lostThrough;
+        private volatile boolean paused;
+
+        Ring(String eventType) {
+            this.eventType = eventType;
+            this.lostThrough = sequence.get();
+        }
+
+        /**
+         * Issue the next sequence number, let the caller encode the envelope
+         * with it, and record a copy.
+         */
+        synchronized Recorded append(EventAttributes attributes, Encoder encoder) {
+            long seq = sequence.incrementAndGet();
+            ByteBuf envelope = encoder.encode(seq);
+            byte[] copy = ByteBufUtil.getBytes(envelope);
+
+            entries.add(new Entry(seq, eventType, attributes, copy));
+            bytes += copy.length;
+            while (entries.size() > maxEvents || (bytes > maxBytes && entries.size() > 1)) {
+                Entry evicted = entries.poll();
+                bytes -= evicted.envelope().length;
+                lostThrough = evicted.seq();
+            }
+            return new Recorded(seq, envelope);
+        }
+
+        /**
+         * Stop treating the ring as complete; events of its type are no longer recorded.
+         */
+        synchronized void pause() {
+            paused = true;
+        }
+
+        /**
+         * Start recording again. Everything issued while paused counts as lost.
+         */
+        synchronized void resume() {
+            if (paused) {
+                paused = false;
+                lostThrough = sequence.get();
+            }
+        }
+
+        private synchronized long collect(long after, List<Entry> out) {
+            for (Entry entry : entries) {
+                if (entry.seq() > after) {
+                    out.add(entry);
+                }
+            }
+            // While paused, nothing since the last entry is known
+            return paused ? sequence.get() : lostThrough;
+        }
+
+        private synchronized long lastSeq() {
+            Entry last = entries.peekLast();
+            return last != null ? last.seq() : lostThrough;
+        }
+    }
+
+    /**
+     * Encodes an envelope once its sequence number is known.
+     */
+    @FunctionalInterface
+    interface Encoder {
+        ByteBuf encode(long seq);
+    }
+
+    /**
+     * Issue a sequence number for an event that is not recorded.
+     */
+    long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * Get the ring an event should be recorded in, or null if it is not recorded.
+     *
+     * @param hasListeners whether any session is subscribed to the event type now
+     */
+    Ring recording(String eventType, boolean hasListeners) {
+        if (excluded.contains(eventType) || !(hasListeners || isRetained(eventType))) {
+            Ring idle = rings.get(eventType);
+            if (idle != null && !idle.paused) {
+                idle.pause();
+            }
+            return null;
+        }
+        Ring ring = rings.computeIfAbsent(eventType, Ring::new);
+        if (ring.paused) {
+            ring.resume();
+        }
+        return ring;
+    }
+
+    /**
+     * Keep recording topics matching these patterns for the retention period,
+     * so a client that drops can resume them.
+     */
+    void retain(Collection<String> patterns) {
+        long until = System.currentTimeMillis() + retentionMillis;
+        for (String pattern : patterns) {
+            retainedUntil.put(pattern, until);
+        }
+    }
+
+    /**
+     * Whether an event type is still recorded for recently departed subscribers.
+     */
+    boolean isRetained(String eventType) {
+        if (retainedUntil.isEmpty() || excluded.contains(eventType)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        boolean retained = false;
+        for (var it = retainedUntil.entrySet().iterator(); it.hasNext(); ) {
+            var entry = it.next();
+            if (entry.getValue() < now) {
+                it.remove();
+            } else if (Subscription.matches(entry.getKey(), eventType)) {
+                retained = true;
+            }
+        }
+        return retained;
+    }
+
+    /**
+     * Collect recorded events after {@code after} for event types matching any pattern,
+     * in sequence order.
+     */
+    Replay since(long after, Collection<String> patterns) {
+        List<Entry> entries = new ArrayList<>();
+        Map<String, Long> floors = new HashMap<>();
+        // A resume point ahead of the counter came from another run of the server
+        long lost = after > sequence.get() ? sequence.get() : 0;
+
+        for (Ring ring : rings.values()) {
+            if (!matchesAny(patterns, ring.eventType)) continue;
+            long ringLost;
+            synchronized (ring) {
+                ringLost = ring.collect(after, entries);
+                floors.put(ring.eventType, ring.lastSeq());
+            }
+            if (ringLost > after) {
+                lost = Math.max(lost, ringLost);
+            }
+        }
+        entries.sort(Comparator.comparingLong(Entry::seq));
+        return new Replay(entries, lost, floors);
+    }
+
+    private static boolean matchesAny(Collection<String> patterns, String eventType) {
+        for (String pattern : patterns) {
+            if (Subscription.matches(pattern, eventType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
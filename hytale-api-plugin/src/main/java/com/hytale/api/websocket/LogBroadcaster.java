@@ -64,8 +64,8 @@ public final class LogBroadcaster {
 
         @Override
         public void publish(LogRecord record) {
-            if (sessionManager.getSessionCount() == 0) return;
             if (!isLoggable(record)) return;
+            if (!sessionManager.hasListeners("server.log")) return;
 
             // Skip our own log messages to avoid loops
             String loggerName = record.getLoggerName();
@@ -74,20 +74,24 @@ public final class LogBroadcaster {
             }
 
             try {
-                String level = record.getLevel().getName();
                 String message = formatMessage(record);
                 String logger = loggerName != null ? loggerName : "unknown";
-                String time = TIME_FORMATTER.format(Instant.ofEpochMilli(record.getMillis()));
                 String thread = Thread.currentThread().getName();
 
-                // Include exception info if present
-                String exception = null;
-                if (record.getThrown() != null) {
-                    exception = formatThrowable(record.getThrown());
-                }
+                // Subscription filters run first; the payload is built only if someone receives it
+                sessionManager.broadcast("server.log",
+                        EventAttributes.log(record.getLevel(), logger, message),
+                        () -> {
+                            String time = TIME_FORMATTER.format(Instant.ofEpochMilli(record.getMillis()));
+
+                            // Include exception info if present
+                            String exception = null;
+                            if (record.getThrown() != null) {
+                                exception = formatThrowable(record.getThrown());
+                            }
 
-                String payload = buildPayload(level, message, logger, time, thread, exception);
-                sessionManager.broadcast("server.log", payload);
+                            return buildPayload(record.getLevel().getName(), message, logger, time, thread, exception);
+                        });
 
             } catch (Exception e) {
                 // Silently ignore to avoid recursion
@@ -0,0 +1,39 @@
+package com.hytale.api.websocket;
+
+/**
+ * What to do with an event when a session's outbound queue is full.
+ */
+public enum OverflowPolicy {
+    /** Discard the oldest queued event to make room. */
+    DROP_OLDEST("drop-oldest"),
+    /** Discard the new event. */
+    DROP_NEWEST("drop-newest"),
+    /** Keep only the latest queued event of each type (e.g. status snapshots). */
+    COALESCE("coalesce"),
+    /** Close the session with {@link WebSocketSession#CLOSE_SLOW_CONSUMER}. */
+    DISCONNECT("disconnect");
+
+    private final String wireName;
+
+    OverflowPolicy(String wireName) {
+        this.wireName = wireName;
+    }
+
+    public String wireName() {
+        return wireName;
+    }
+
+    /**
+     * Parse a policy name as sent by clients.
+     *
+     * @return the policy, or null if unknown
+     */
+    public static OverflowPolicy fromWireName(String name) {
+        for (OverflowPolicy policy : values()) {
+            if (policy.wireName.equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+}
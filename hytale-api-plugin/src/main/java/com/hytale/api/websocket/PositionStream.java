@@ -0,0 +1,193 @@
+package com.hytale.api.websocket;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Per-subscriber player.position stream.
+ * Positions are sampled once per period for every subscriber. Each subscriber
+ * is sent, on its own interval, the players inside its filter that moved more
+ * than the minimum distance since it last saw them, as compact
+ * {@code [uuid, world, x, y, z]} rows, plus the players it can no longer see.
+ * Intervals with nothing to report send nothing. Only sessions subscribed to
+ * the topic by name get it; {@code player.*} and {@code *} do not.
+ */
+final class PositionStream {
+    private static final Logger LOGGER = Logger.getLogger(PositionStream.class.getName());
+
+    static final String EVENT_TYPE = "player.position";
+
+    /**
+     * One player's position at sampling time.
+     */
+    record Sample(UUID player, String world, double x, double y, double z) {}
+
+    /**
+     * What one subscriber was last sent and when it is next due. Only touched by {@link #tick()}.
+     */
+    private static final class State {
+        final Map<UUID, Sample> sent = new HashMap<>();
+        long nextDue;
+    }
+
+    private final WebSocketSessionManager sessionManager;
+    private final Supplier<List<Sample>> source;
+    private final long periodMillis;
+    private final double minMoveSquared;
+    private final Map<WebSocketSession, State> states = new ConcurrentHashMap<>();
+
+    PositionStream(WebSocketSessionManager sessionManager, Supplier<List<Sample>> source,
+                   int sampleRateHz, double minMoveDistance) {
+        this.sessionManager = sessionManager;
+        this.source = source;
+        this.periodMillis = 1000L / sampleRateHz;
+        this.minMoveSquared = minMoveDistance * minMoveDistance;
+    }
+
+    long periodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Forget what a session was sent, so its next update is complete; e.g. when it (re)subscribes.
+     */
+    void reset(WebSocketSession session) {
+        states.remove(session);
+    }
+
+    /**
+     * Send each due subscriber what moved. Called every {@link #periodMillis()}.
+     */
+    void tick() {
+        WebSocketSession[] subscribers = sessionManager.subscribers(EVENT_TYPE);
+        if (subscribers.length == 0) {
+            states.clear();
+            return;
+        }
+        if (states.size() > subscribers.length) {
+            states.keySet().retainAll(new HashSet<>(Arrays.asList(subscribers)));
+        }
+
+        long now = System.currentTimeMillis();
+        List<Sample> samples = null;
+        for (WebSocketSession session : subscribers) {
+            Subscription subscription = session.subscriptionFor(EVENT_TYPE);
+            if (subscription == null || !subscription.pattern().equals(EVENT_TYPE)) continue;
+
+            State state = states.computeIfAbsent(session, s -> new State());
+            if (now < state.nextDue) continue;
+
+            if (samples == null) {
+                samples = sample();
+                if (samples == null) return;
+            }
+
+            state.nextDue = now + intervalFor(subscription);
+            String payload = encode(subscription.options().filter(), state, samples);
+            if (payload != null) {
+                sessionManager.sendEvent(session, EVENT_TYPE, payload);
+            }
+        }
+    }
+
+    private long intervalFor(Subscription subscription) {
+        int intervalMs = subscription.options().intervalMs();
+        // A tick that lands a few ms early should not push the update to the next tick
+        return Math.max(periodMillis, intervalMs) - periodMillis / 2;
+    }
+
+    private List<Sample> sample() {
+        try {
+            return source.get();
+        } catch (Exception e) {
+            LOGGER.warning("Position sample failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Build a subscriber's update and record what it was sent, or return null if nothing changed.
+     */
+    private String encode(SubscriptionFilter filter, State state, List<Sample> samples) {
+        StringBuilder json = new StringBuilder(64 + samples.size() * 64).append("{\"positions\":[");
+        Set<UUID> visible = new HashSet<>();
+        boolean moved = false;
+
+        for (Sample sample : samples) {
+            if (filter != null && !filter.test(EventAttributes.player(sample.player(), sample.world(), null),
+                    sample.x(), sample.y(), sample.z())) {
+                continue;
+            }
+            visible.add(sample.player());
+
+            Sample previous = state.sent.get(sample.player());
+            if (previous != null && Objects.equals(previous.world(), sample.world())
+                    && distanceSquared(previous, sample) <= minMoveSquared) {
+                continue;
+            }
+            state.sent.put(sample.player(), sample);
+
+            if (moved) json.append(',');
+            moved = true;
+            json.append("[\"").append(sample.player()).append("\",\"").append(escapeJson(sample.world())).append('"');
+            appendCoordinate(json, sample.x());
+            appendCoordinate(json, sample.y());
+            appendCoordinate(json, sample.z());
+            json.append(']');
+        }
+        json.append(']');
+
+        // Players that left the filter or the server
+        boolean gone = false;
+        for (Iterator<UUID> it = state.sent.keySet().iterator(); it.hasNext(); ) {
+            UUID player = it.next();
+            if (visible.contains(player)) continue;
+            it.remove();
+
+            json.append(gone ? ",\"" : ",\"gone\":[\"").append(player).append('"');
+            gone = true;
+        }
+        if (gone) json.append(']');
+
+        return moved || gone ? json.append('}').toString() : null;
+    }
+
+    private static double distanceSquared(Sample a, Sample b) {
+        double dx = a.x() - b.x();
+        double dy = a.y() - b.y();
+        double dz = a.z() - b.z();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Append a coordinate rounded to hundredths of a block.
+     */
+    private static void appendCoordinate(StringBuilder json, double value) {
+        json.append(',');
+        long hundredths = Math.round(value * 100);
+        if (hundredths % 100 == 0) {
+            json.append(hundredths / 100);
+        } else {
+            json.append(hundredths / 100.0);
+        }
+    }
+
+    private static String escapeJson(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r")
+                .replace("\t", "\\t");
+    }
+}
@@ -0,0 +1,224 @@
+package com.hytale.api.websocket;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Per-subscriber server.status stream.
+ * Each subscriber gets a keyframe with every field when it subscribes, then on
+ * its own interval only the fields that changed since what it was last sent.
+ * Ticks with nothing relevant to report send nothing. A keyframe is repeated
+ * periodically, and sooner if the session dropped messages, so a client that
+ * missed a delta converges again.
+ */
+final class StatusStream {
+    private static final Logger LOGGER = Logger.getLogger(StatusStream.class.getName());
+
+    static final String EVENT_TYPE = "server.status";
+
+    /**
+     * Scheduling granularity; subscriber intervals round up to a multiple of this.
+     */
+    static final long TICK_MS = 250;
+
+    /**
+     * Memory usage changes smaller than this fraction of the maximum are not reported.
+     */
+    private static final double MEMORY_CHANGE_RATIO = 0.01;
+
+    /**
+     * Snapshots newer than this are reused for keyframes sent on subscribe.
+     */
+    private static final long SNAPSHOT_MAX_AGE_MS = 1000;
+
+    /**
+     * Server state reported on the stream.
+     */
+    record Snapshot(String name, int players, int maxPlayers, long uptime, long usedMemory, long maxMemory) {}
+
+    /**
+     * What one subscriber was last sent and when it is next due.
+     */
+    private static final class State {
+        Snapshot sent;
+        long nextDue;
+        long nextKeyframe;
+        long dropped;
+    }
+
+    private final WebSocketSessionManager sessionManager;
+    private final Supplier<Snapshot> source;
+    private final long defaultIntervalMs;
+    private final long keyframeIntervalMs;
+    private final Map<WebSocketSession, State> states = new ConcurrentHashMap<>();
+
+    private volatile Snapshot latest;
+    private volatile long latestAt;
+
+    StatusStream(WebSocketSessionManager sessionManager, Supplier<Snapshot> source,
+                 long defaultIntervalMs, long keyframeIntervalMs) {
+        this.sessionManager = sessionManager;
+        this.source = source;
+        this.defaultIntervalMs = defaultIntervalMs;
+        this.keyframeIntervalMs = keyframeIntervalMs;
+    }
+
+    /**
+     * Send each due subscriber what changed. Called every {@link #TICK_MS}.
+     */
+    void tick() {
+        WebSocketSession[] subscribers = sessionManager.subscribers(EVENT_TYPE);
+        if (subscribers.length == 0) {
+            states.clear();
+            return;
+        }
+        if (states.size() > subscribers.length) {
+            states.keySet().retainAll(new HashSet<>(Arrays.asList(subscribers)));
+        }
+
+        long now = System.currentTimeMillis();
+        Snapshot current = null;
+        for (WebSocketSession session : subscribers) {
+            State state = states.computeIfAbsent(session, s -> new State());
+            synchronized (state) {
+                if (now < state.nextDue) continue;
+                if (current == null) {
+                    current = sample(now);
+                    if (current == null) return;
+                }
+                send(session, state, current, now);
+            }
+        }
+    }
+
+    /**
+     * Send a session a keyframe right away, e.g. when it subscribes.
+     */
+    void sendKeyframe(WebSocketSession session) {
+        long now = System.currentTimeMillis();
+        Snapshot current = latest != null && now - latestAt < SNAPSHOT_MAX_AGE_MS ? latest : sample(now);
+        if (current == null) return;
+
+        State state = new State();
+        synchronized (state) {
+            states.put(session, state);
+            send(session, state, current, now);
+        }
+    }
+
+    private void send(WebSocketSession session, State state, Snapshot current, long now) {
+        state.nextDue = now + intervalFor(session);
+
+        long dropped = session.droppedCount();
+        String payload;
+        if (state.sent == null || now >= state.nextKeyframe || dropped != state.dropped) {
+            payload = keyframe(current);
+            state.sent = current;
+            state.nextKeyframe = now + keyframeIntervalMs;
+        } else {
+            Snapshot reported = changed(state.sent, current);
+            if (reported == state.sent) return;
+            payload = delta(state.sent, reported);
+            state.sent = reported;
+        }
+        state.dropped = dropped;
+
+        sessionManager.sendEvent(session, EVENT_TYPE, payload);
+    }
+
+    private long intervalFor(WebSocketSession session) {
+        Subscription subscription = session.subscriptionFor(EVENT_TYPE);
+        int intervalMs = subscription != null ? subscription.options().intervalMs() : 0;
+        long interval = intervalMs > 0 ? intervalMs : defaultIntervalMs;
+        // A tick that lands a few ms early should not push the update to the next tick
+        return Math.max(TICK_MS, interval) - TICK_MS / 2;
+    }
+
+    private Snapshot sample(long now) {
+        try {
+            Snapshot snapshot = source.get();
+            latest = snapshot;
+            latestAt = now;
+            return snapshot;
+        } catch (Exception e) {
+            LOGGER.warning("Status sample failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Fold the relevant changes in current into what was sent.
+     * Returns sent itself if nothing relevant changed.
+     */
+    private static Snapshot changed(Snapshot sent, Snapshot current) {
+        long memoryThreshold = (long) (current.maxMemory() * MEMORY_CHANGE_RATIO);
+        boolean memoryChanged = Math.abs(current.usedMemory() - sent.usedMemory()) > memoryThreshold
+                || current.maxMemory() != sent.maxMemory();
+
+        if (!memoryChanged
+                && current.players() == sent.players()
+                && current.maxPlayers() == sent.maxPlayers()
+                && Objects.equals(current.name(), sent.name())) {
+            return sent;
+        }
+        // Uptime is only carried by keyframes; clients extrapolate it in between
+        return new Snapshot(
+                current.name(),
+                current.players(),
+                current.maxPlayers(),
+                sent.uptime(),
+                memoryChanged ? current.usedMemory() : sent.usedMemory(),
+                current.maxMemory()
+        );
+    }
+
+    private static String keyframe(Snapshot s) {
+        return """
+                {"keyframe":true,"name":"%s","players":%d,"maxPlayers":%d,"uptime":%d,"memory":{"used":%d,"max":%d}}"""
+                .formatted(
+                        escapeJson(s.name()),
+                        s.players(),
+                        s.maxPlayers(),
+                        s.uptime(),
+                        s.usedMemory(),
+                        s.maxMemory()
+                );
+    }
+
+    private static String delta(Snapshot sent, Snapshot next) {
+        StringBuilder json = new StringBuilder(96).append("{\"keyframe\":false");
+        if (!Objects.equals(next.name(), sent.name())) {
+            json.append(",\"name\":\"").append(escapeJson(next.name())).append('"');
+        }
+        if (next.players() != sent.players()) {
+            json.append(",\"players\":").append(next.players());
+        }
+        if (next.maxPlayers() != sent.maxPlayers()) {
+            json.append(",\"maxPlayers\":").append(next.maxPlayers());
+        }
+        boolean usedChanged = next.usedMemory() != sent.usedMemory();
+        boolean maxChanged = next.maxMemory() != sent.maxMemory();
+        if (usedChanged || maxChanged) {
+            json.append(",\"memory\":{");
+            if (usedChanged) json.append("\"used\":").append(next.usedMemory());
+            if (usedChanged && maxChanged) json.append(',');
+            if (maxChanged) json.append("\"max\":").append(next.maxMemory());
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String escapeJson(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r")
+                .replace("\t", "\\t");
+    }
+}
@@ -0,0 +1,109 @@
+package com.hytale.api.websocket;
+
+import com.google.gson.JsonObject;
+
+/**
+ * One subscription of a session: an event pattern and its delivery options.
+ *
+ * @param pattern exact event type, {@code prefix.*}, or {@code *}
+ */
+public record Subscription(
+        String pattern,
+        Options options
+) {
+    static final int MAX_BATCH_MS = 10_000;
+    static final int MAX_BATCH_SIZE = 10_000;
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final int MIN_INTERVAL_MS = 50;
+    static final int MAX_INTERVAL_MS = 3_600_000;
+
+    /**
+     * Delivery options shared by the patterns of one subscribe message.
+     *
+     * @param overflow what to drop when the session falls behind
+     * @param batchMs  collect events for this long and send them as one frame (0 to send each event)
+     * @param maxBatch send a batch early once it holds this many events
+     * @param filter     predicates events must match, or null to deliver every event
+     * @param intervalMs time between updates of sampled topics, {@code server.status} and {@code player.position}
+     *                   (0 for the topic's default)
+     */
+    public record Options(
+            OverflowPolicy overflow,
+            int batchMs,
+            int maxBatch,
+            SubscriptionFilter filter,
+            int intervalMs
+    ) {
+        public static final Options DEFAULT = new Options(OverflowPolicy.DROP_OLDEST, 0, 0, null, 0);
+
+        public boolean isBatched() {
+            return batchMs > 0;
+        }
+
+        /**
+         * Read options from a subscribe message.
+         *
+         * @throws IllegalArgumentException if an option is out of range
+         */
+        public static Options parse(JsonObject message) {
+            OverflowPolicy overflow = OverflowPolicy.DROP_OLDEST;
+            if (message.has("overflow")) {
+                overflow = OverflowPolicy.fromWireName(message.get("overflow").getAsString());
+                if (overflow == null) {
+                    throw new IllegalArgumentException(
+                            "overflow must be one of drop-oldest, drop-newest, coalesce, disconnect");
+                }
+            }
+
+            int batchMs = message.has("batchMs") ? message.get("batchMs").getAsInt() : 0;
+            if (batchMs < 0 || batchMs > MAX_BATCH_MS) {
+                throw new IllegalArgumentException("batchMs must be between 0 and " + MAX_BATCH_MS);
+            }
+            int maxBatch = message.has("maxBatch") ? message.get("maxBatch").getAsInt() : DEFAULT_BATCH_SIZE;
+            if (maxBatch < 1 || maxBatch > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("maxBatch must be between 1 and " + MAX_BATCH_SIZE);
+            }
+
+            int intervalMs = message.has("intervalMs") ? message.get("intervalMs").getAsInt() : 0;
+            if (intervalMs != 0 && (intervalMs < MIN_INTERVAL_MS || intervalMs > MAX_INTERVAL_MS)) {
+                throw new IllegalArgumentException(
+                        "intervalMs must be between %d and %d".formatted(MIN_INTERVAL_MS, MAX_INTERVAL_MS));
+            }
+
+            return new Options(overflow, batchMs, batchMs > 0 ? maxBatch : 0,
+                    SubscriptionFilter.parse(message), intervalMs);
+        }
+    }
+
+    /**
+     * Whether an event passes this subscription's filter.
+     */
+    public boolean accepts(EventAttributes event) {
+        return options.filter() == null || options.filter().test(event);
+    }
+
+    /**
+     * Whether this subscription's pattern matches an event type.
+     */
+    public boolean matches(String eventType) {
+        return matches(pattern, eventType);
+    }
+
+    /**
+     * Whether a subscription pattern matches an event type.
+     */
+    static boolean matches(String pattern, String eventType) {
+        if (pattern.equals("*") || pattern.equals(eventType)) {
+            return true;
+        }
+        return pattern.endsWith(".*") && eventType.regionMatches(0, pattern, 0, pattern.length() - 1);
+    }
+
+    /**
+     * How specific the pattern is; exact matches win over prefixes, longer prefixes over shorter.
+     */
+    int specificity() {
+        if (!pattern.endsWith("*")) return Integer.MAX_VALUE;
+        return pattern.length();
+    }
+}
@@ -0,0 +1,183 @@
+package com.hytale.api.websocket;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Predicates a subscription applies to events before they are serialized.
+ * Compiled once when the client subscribes; every configured predicate must
+ * match, and an event that lacks a filtered attribute does not match.
+ *
+ * @param minLevel     lowest log level delivered, as {@link Level#intValue()}, or {@link Integer#MIN_VALUE}
+ * @param loggerPrefix required logger name prefix, or null
+ * @param world        required world name, or null
+ * @param players      player UUIDs to deliver, or null for any
+ * @param contains     text that must appear in the message, or null
+ * @param region       box positions must lie in, or null; only position samples carry a position
+ */
+public record SubscriptionFilter(
+        int minLevel,
+        String loggerPrefix,
+        String world,
+        Set<UUID> players,
+        String contains,
+        Region region
+) {
+    static final int MAX_CONTAINS_LENGTH = 256;
+    static final int MAX_PLAYERS = 1000;
+
+    /**
+     * Messages longer than this are matched on their first this-many characters,
+     * bounding the time a filter can hold up the thread that produced the event.
+     */
+    private static final int MAX_MATCH_LENGTH = 4096;
+
+    /**
+     * Axis-aligned box, inclusive on every face.
+     */
+    public record Region(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        /**
+         * Read {@code {"min":[x,y,z],"max":[x,y,z]}}; the corners may be given in either order.
+         */
+        static Region parse(JsonElement element) {
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("region must be an object with min and max");
+            }
+            JsonObject region = element.getAsJsonObject();
+            double[] a = corner(region, "min");
+            double[] b = corner(region, "max");
+            return new Region(
+                    Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.min(a[2], b[2]),
+                    Math.max(a[0], b[0]), Math.max(a[1], b[1]), Math.max(a[2], b[2]));
+        }
+
+        private static double[] corner(JsonObject region, String name) {
+            JsonElement element = region.get(name);
+            if (element == null || !element.isJsonArray() || element.getAsJsonArray().size() != 3) {
+                throw new IllegalArgumentException("region." + name + " must be [x, y, z]");
+            }
+            JsonArray xyz = element.getAsJsonArray();
+            return new double[]{xyz.get(0).getAsDouble(), xyz.get(1).getAsDouble(), xyz.get(2).getAsDouble()};
+        }
+
+        public boolean contains(double x, double y, double z) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+    }
+
+    /**
+     * Read a {@code filter} object from a subscribe message.
+     *
+     * @return the compiled filter, or null if the message has none
+     * @throws IllegalArgumentException if a predicate is malformed
+     */
+    public static SubscriptionFilter parse(JsonObject message) {
+        if (!message.has("filter")) {
+            return null;
+        }
+        JsonElement element = message.get("filter");
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException("filter must be an object");
+        }
+        JsonObject filter = element.getAsJsonObject();
+
+        int minLevel = Integer.MIN_VALUE;
+        if (filter.has("minLevel")) {
+            try {
+                minLevel = Level.parse(filter.get("minLevel").getAsString().toUpperCase()).intValue();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("minLevel must be a log level such as INFO or WARNING");
+            }
+        }
+
+        String loggerPrefix = filter.has("loggerPrefix") ? filter.get("loggerPrefix").getAsString() : null;
+        String world = filter.has("world") ? filter.get("world").getAsString() : null;
+
+        Set<UUID> players = null;
+        if (filter.has("players")) {
+            players = new HashSet<>();
+            for (JsonElement uuid : filter.getAsJsonArray("players")) {
+                try {
+                    players.add(UUID.fromString(uuid.getAsString()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("players must be UUIDs: " + uuid.getAsString());
+                }
+            }
+            if (players.size() > MAX_PLAYERS) {
+                throw new IllegalArgumentException("players may list at most " + MAX_PLAYERS + " UUIDs");
+            }
+            players = Set.copyOf(players);
+        }
+
+        // Regular expressions would run on logging and game threads, where a
+        // backtracking pattern could stall them; only literal text is matched
+        if (filter.has("regex")) {
+            throw new IllegalArgumentException("regex is not supported; use contains");
+        }
+        String contains = null;
+        if (filter.has("contains")) {
+            contains = filter.get("contains").getAsString();
+            if (contains.isEmpty() || contains.length() > MAX_CONTAINS_LENGTH) {
+                throw new IllegalArgumentException(
+                        "contains must be 1 to " + MAX_CONTAINS_LENGTH + " characters");
+            }
+        }
+
+        Region region = filter.has("region") ? Region.parse(filter.get("region")) : null;
+
+        if (minLevel == Integer.MIN_VALUE && loggerPrefix == null && world == null
+                && players == null && contains == null && region == null) {
+            return null;
+        }
+        return new SubscriptionFilter(minLevel, loggerPrefix, world, players, contains, region);
+    }
+
+    /**
+     * Check an event against every configured predicate.
+     * Events carry no position, so none match a filter with a region.
+     */
+    public boolean test(EventAttributes event) {
+        return region == null && matches(event);
+    }
+
+    /**
+     * Check a position sample against every configured predicate, including the region.
+     */
+    public boolean test(EventAttributes event, double x, double y, double z) {
+        return matches(event) && (region == null || region.contains(x, y, z));
+    }
+
+    private boolean matches(EventAttributes event) {
+        if (minLevel != Integer.MIN_VALUE
+                && (event.level() == null || event.level().intValue() < minLevel)) {
+            return false;
+        }
+        if (loggerPrefix != null
+                && (event.logger() == null || !event.logger().startsWith(loggerPrefix))) {
+            return false;
+        }
+        if (world != null && !world.equals(event.world())) {
+            return false;
+        }
+        if (players != null && (event.player() == null || !players.contains(event.player()))) {
+            return false;
+        }
+        if (contains != null) {
+            String message = event.message();
+            if (message == null) {
+                return false;
+            }
+            String input = message.length() > MAX_MATCH_LENGTH
+                    ? message.substring(0, MAX_MATCH_LENGTH)
+                    : message;
+            return input.contains(contains);
+        }
+        return true;
+    }
+}
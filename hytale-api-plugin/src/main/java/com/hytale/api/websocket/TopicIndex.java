@@ -0,0 +1,145 @@
+package com.hytale.api.websocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from subscription pattern to sessions, for broadcast fan-out.
+ * Patterns are exact event types, prefixes ending in {@code .*}, or {@code *}.
+ *
+ * <p>The index is an immutable snapshot replaced on every subscription change.
+ * Each snapshot resolves an event type to its recipient array once (exact
+ * subscribers plus every matching prefix, de-duplicated, ordered so sessions on
+ * the same event loop are adjacent) and caches it, so a broadcast is one map
+ * lookup and an array walk. Subscription changes are rare
+ * compared to broadcasts, and discarding the snapshot also discards the cache.
+ */
+final class TopicIndex {
+    private static final WebSocketSession[] NONE = new WebSocketSession[0];
+
+    private final Map<String, Set<WebSocketSession>> byPattern = new HashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), List.of());
+
+    /**
+     * Add a session under a pattern.
+     */
+    synchronized void add(WebSocketSession session, String pattern) {
+        if (byPattern.computeIfAbsent(pattern, k -> new LinkedHashSet<>()).add(session)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Remove a session from a pattern.
+     */
+    synchronized void remove(WebSocketSession session, String pattern) {
+        Set<WebSocketSession> sessions = byPattern.get(pattern);
+        if (sessions != null && sessions.remove(session)) {
+            if (sessions.isEmpty()) {
+                byPattern.remove(pattern);
+            }
+            rebuild();
+        }
+    }
+
+    /**
+     * Remove a session from every pattern it is under.
+     */
+    synchronized void removeAll(WebSocketSession session, Set<String> patterns) {
+        boolean changed = false;
+        for (String pattern : patterns) {
+            Set<WebSocketSession> sessions = byPattern.get(pattern);
+            if (sessions != null && sessions.remove(session)) {
+                changed = true;
+                if (sessions.isEmpty()) {
+                    byPattern.remove(pattern);
+                }
+            }
+        }
+        if (changed) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Get the sessions subscribed to an event type; never null.
+     */
+    WebSocketSession[] recipients(String eventType) {
+        return snapshot.recipients(eventType);
+    }
+
+    /**
+     * Whether any session is subscribed to an event type.
+     */
+    boolean hasListeners(String eventType) {
+        return snapshot.recipients(eventType).length > 0;
+    }
+
+    private void rebuild() {
+        Map<String, WebSocketSession[]> exact = new HashMap<>();
+        List<Map.Entry<String, WebSocketSession[]>> prefixes = new ArrayList<>();
+        byPattern.forEach((pattern, sessions) -> {
+            WebSocketSession[] array = sessions.toArray(NONE);
+            if (pattern.equals("*")) {
+                prefixes.add(Map.entry("", array));
+            } else if (pattern.endsWith(".*")) {
+                prefixes.add(Map.entry(pattern.substring(0, pattern.length() - 1), array));
+            } else {
+                exact.put(pattern, array);
+            }
+        });
+        snapshot = new Snapshot(exact, prefixes);
+    }
+
+    /**
+     * Immutable index state with a per-event-type recipient cache.
+     */
+    private static final class Snapshot {
+        private final Map<String, WebSocketSession[]> exact;
+        private final List<Map.Entry<String, WebSocketSession[]>> prefixes;
+        private final Map<String, WebSocketSession[]> resolved = new ConcurrentHashMap<>();
+
+        Snapshot(Map<String, WebSocketSession[]> exact, List<Map.Entry<String, WebSocketSession[]>> prefixes) {
+            this.exact = exact;
+            this.prefixes = prefixes;
+        }
+
+        WebSocketSession[] recipients(String eventType) {
+            WebSocketSession[] cached = resolved.get(eventType);
+            if (cached != null) {
+                return cached;
+            }
+            if (exact.isEmpty() && prefixes.isEmpty()) {
+                return NONE;
+            }
+            return resolved.computeIfAbsent(eventType, this::resolve);
+        }
+
+        private WebSocketSession[] resolve(String eventType) {
+            Set<WebSocketSession> matched = new LinkedHashSet<>();
+            WebSocketSession[] direct = exact.get(eventType);
+            if (direct != null) {
+                matched.addAll(List.of(direct));
+            }
+            for (var entry : prefixes) {
+                if (eventType.startsWith(entry.getKey())) {
+                    matched.addAll(List.of(entry.getValue()));
+                }
+            }
+            if (matched.isEmpty()) {
+                return NONE;
+            }
+            // Group by event loop so a broadcast can hand each loop one contiguous run
+            WebSocketSession[] array = matched.toArray(NONE);
+            Arrays.sort(array, Comparator.comparingInt(session -> System.identityHashCode(session.channel().eventLoop())));
+            return array;
+        }
+    }
+}
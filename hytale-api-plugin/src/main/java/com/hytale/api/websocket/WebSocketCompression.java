@@ -0,0 +1,183 @@
+package com.hytale.api.websocket;
+
+import com.hytale.api.config.ApiConfig.WebSocketConfig.CompressionConfig;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * permessage-deflate support for WebSocket sessions, with bandwidth and CPU accounting.
+ *
+ * <p>Netty's extension handler negotiates the extension during the upgrade and
+ * then inserts the deflate encoder and decoder in its own place. Two counters
+ * bracket that place: the outer one sees frames as they go on the wire, the
+ * inner one sees them before compression and times the write through the
+ * encoder, so each session reports bytes saved against the time spent deflating.
+ */
+public final class WebSocketCompression {
+    private static final AttributeKey<Counters> COUNTERS_KEY = AttributeKey.valueOf("ws.compression");
+
+    private final PerMessageDeflateServerExtensionHandshaker handshaker;
+    private final RawCounter rawCounter = new RawCounter();
+    private final WireCounter wireCounter = new WireCounter();
+
+    private final LongAdder totalRaw = new LongAdder();
+    private final LongAdder totalWire = new LongAdder();
+    private final LongAdder totalFrames = new LongAdder();
+    private final LongAdder totalEncodeNanos = new LongAdder();
+
+    public WebSocketCompression(CompressionConfig config) {
+        WebSocketExtensionFilter skipSmall = frame -> frame.content().readableBytes() < config.minFrameBytes();
+        this.handshaker = new PerMessageDeflateServerExtensionHandshaker(
+                config.effectiveCompressionLevel(),
+                true, // let clients shrink the server window
+                config.effectiveClientMaxWindowBits(),
+                config.allowServerNoContextTakeover(),
+                config.clientNoContextTakeover(),
+                new WebSocketExtensionFilterProvider() {
+                    @Override
+                    public WebSocketExtensionFilter encoderFilter() {
+                        return skipSmall;
+                    }
+
+                    @Override
+                    public WebSocketExtensionFilter decoderFilter() {
+                        return WebSocketExtensionFilter.NEVER_SKIP;
+                    }
+                });
+    }
+
+    /**
+     * Compression counters for one session or for all sessions since start.
+     *
+     * @param rawBytes         payload bytes before compression
+     * @param wireBytes        payload bytes sent
+     * @param compressedFrames frames sent compressed; 0 if the client did not negotiate the extension
+     * @param encodeMicros     time spent writing frames through the deflate encoder
+     */
+    public record Stats(
+            long rawBytes,
+            long wireBytes,
+            long savedBytes,
+            long compressedFrames,
+            long encodeMicros
+    ) {
+        static Stats of(long raw, long wire, long frames, long encodeNanos) {
+            return new Stats(raw, wire, raw - wire, frames, encodeNanos / 1000);
+        }
+    }
+
+    /**
+     * Add the extension handler and its counters to a pipeline, ahead of the
+     * WebSocket protocol handler.
+     */
+    public void addTo(ChannelPipeline pipeline) {
+        pipeline.addLast("wsDeflateWire", wireCounter);
+        pipeline.addLast("wsDeflate", new WebSocketServerExtensionHandler(handshaker));
+        pipeline.addLast("wsDeflateRaw", rawCounter);
+    }
+
+    /**
+     * Get counters for a session's channel, or null if it has sent no frames.
+     */
+    public Stats stats(Channel channel) {
+        Counters counters = channel.attr(COUNTERS_KEY).get();
+        return counters != null
+                ? Stats.of(counters.raw, counters.wire, counters.frames, counters.encodeNanos)
+                : null;
+    }
+
+    /**
+     * Get counters summed over every session since start.
+     */
+    public Stats totals() {
+        return Stats.of(totalRaw.sum(), totalWire.sum(), totalFrames.sum(), totalEncodeNanos.sum());
+    }
+
+    /**
+     * Per-channel counters, written on the channel's event loop.
+     */
+    private static final class Counters {
+        volatile long raw;
+        volatile long wire;
+        volatile long frames;
+        volatile long encodeNanos;
+    }
+
+    private static boolean isDataFrame(Object msg) {
+        return msg instanceof TextWebSocketFrame
+                || msg instanceof BinaryWebSocketFrame
+                || msg instanceof ContinuationWebSocketFrame;
+    }
+
+    private static Counters counters(Channel channel) {
+        Counters counters = channel.attr(COUNTERS_KEY).get();
+        if (counters == null) {
+            counters = new Counters();
+            channel.attr(COUNTERS_KEY).set(counters);
+        }
+        return counters;
+    }
+
+    /**
+     * Sits after the deflate encoder in write order; counts bytes before compression
+     * and times the encoder.
+     */
+    @ChannelHandler.Sharable
+    private final class RawCounter extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (!isDataFrame(msg)) {
+                ctx.write(msg, promise);
+                return;
+            }
+            Counters counters = counters(ctx.channel());
+            int bytes = ((WebSocketFrame) msg).content().readableBytes();
+            long start = System.nanoTime();
+            ctx.write(msg, promise);
+            long elapsed = System.nanoTime() - start;
+
+            counters.raw += bytes;
+            counters.encodeNanos += elapsed;
+            totalRaw.add(bytes);
+            totalEncodeNanos.add(elapsed);
+        }
+    }
+
+    /**
+     * Sits before the deflate encoder in write order; counts bytes as sent.
+     */
+    @ChannelHandler.Sharable
+    private final class WireCounter extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (isDataFrame(msg)) {
+                WebSocketFrame frame = (WebSocketFrame) msg;
+                Counters counters = counters(ctx.channel());
+                int bytes = frame.content().readableBytes();
+                counters.wire += bytes;
+                totalWire.add(bytes);
+                if ((frame.rsv() & WebSocketExtension.RSV1) != 0) {
+                    counters.frames++;
+                    totalFrames.increment();
+                }
+            }
+            ctx.write(msg, promise);
+        }
+    }
+}
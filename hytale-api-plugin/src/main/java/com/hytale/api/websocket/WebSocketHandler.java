@@ -1,53 +1,96 @@
 package com.hytale.api.websocket;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.hytale.api.config.ApiConfig;
+import com.hytale.api.exception.ApiException;
+import com.hytale.api.http.HttpRequestRouter;
 import com.hytale.api.security.ApiPermissions;
+import com.hytale.api.security.ClientCertificateAuthenticator;
 import com.hytale.api.security.ClientIdentity;
 import com.hytale.api.security.TokenGenerator;
 import com.hytale.api.security.TokenGenerator.ValidatedToken;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * WebSocket message handler.
  * Handles authentication, subscription management, and message routing.
+ * Request messages are answered through the HTTP route table on a virtual
+ * thread each, so slow handlers never hold up the event loop.
  */
 @ChannelHandler.Sharable
 public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebSocketFrame> {
     private static final Logger LOGGER = Logger.getLogger(WebSocketHandler.class.getName());
     private static final Gson GSON = new Gson();
 
+    /**
+     * Methods the REST routes answer; anything else is rejected before dispatch.
+     */
+    private static final Map<String, HttpMethod> REQUEST_METHODS = Map.of(
+            "GET", HttpMethod.GET,
+            "POST", HttpMethod.POST,
+            "PUT", HttpMethod.PUT,
+            "DELETE", HttpMethod.DELETE
+    );
+
     private final ApiConfig config;
     private final TokenGenerator tokenGenerator;
     private final WebSocketSessionManager sessionManager;
+    private final HttpRequestRouter router;
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public WebSocketHandler(
             ApiConfig config,
             TokenGenerator tokenGenerator,
-            WebSocketSessionManager sessionManager
+            WebSocketSessionManager sessionManager,
+            HttpRequestRouter router
     ) {
         this.config = config;
         this.tokenGenerator = tokenGenerator;
         this.sessionManager = sessionManager;
+        this.router = router;
     }
 
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
             LOGGER.fine("WebSocket handshake complete: " + ctx.channel().remoteAddress());
-            // Session will be registered after auth message
+
+            // Writability drives the per-session outbound queue
+            var ws = config.websocket();
+            ctx.channel().config().setWriteBufferWaterMark(new WriteBufferWaterMark(
+                    ws.effectiveWriteBufferLowWaterMark(), ws.effectiveWriteBufferHighWaterMark()));
+
+            // mTLS clients are already authenticated; others register after the auth message
+            ClientIdentity peer = ctx.channel().attr(ClientCertificateAuthenticator.PEER_IDENTITY_KEY).get();
+            if (peer != null && peer.hasPermission(ApiPermissions.WEBSOCKET_CONNECT)
+                    && !tokenGenerator.getRevocationStore().isRevoked(peer)) {
+                registerAuthenticated(ctx, peer);
+            }
         }
         super.userEventTriggered(ctx, evt);
     }
@@ -68,8 +111,10 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
             // Handle message based on type
             switch (type) {
                 case "auth" -> handleAuth(ctx, message);
+                case "reauth" -> handleReauth(ctx, message);
                 case "subscribe" -> handleSubscribe(ctx, message);
                 case "unsubscribe" -> handleUnsubscribe(ctx, message);
+                case "request" -> handleRequest(ctx, message);
                 case "ping" -> handlePing(ctx);
                 default -> sessionManager.sendError(ctx.channel(), "UNKNOWN_TYPE", "Unknown message type: " + type);
             }
@@ -82,8 +127,15 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
 
     /**
      * Handle authentication message.
+     * A channel authenticates once, by mTLS or by this message; later tokens go through reauth.
      */
     private void handleAuth(ChannelHandlerContext ctx, JsonObject message) {
+        if (sessionManager.getSession(ctx.channel()) != null) {
+            sessionManager.sendError(ctx.channel(), "ALREADY_AUTHENTICATED",
+                    "Session already authenticated; send reauth to switch tokens");
+            return;
+        }
+
         String token = message.has("token") ? message.get("token").getAsString() : null;
 
         if (token == null || token.isBlank()) {
@@ -96,35 +148,23 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
 
         switch (result) {
             case ValidatedToken.Valid valid -> {
+                if (tokenGenerator.isRevoked(valid)) {
+                    sessionManager.sendError(ctx.channel(), "INVALID_TOKEN", "Token revoked");
+                    ctx.close();
+                    return;
+                }
+
+                ClientIdentity identity = ClientIdentity.from(valid);
+
                 // Check WebSocket permission
-                if (!hasWsPermission(valid.permissions())) {
+                if (!identity.hasPermission(ApiPermissions.WEBSOCKET_CONNECT)) {
                     sessionManager.sendError(ctx.channel(), "FORBIDDEN",
                             "Missing permission: " + ApiPermissions.WEBSOCKET_CONNECT);
                     ctx.close();
                     return;
                 }
 
-                ClientIdentity identity = new ClientIdentity(
-                        valid.clientId(),
-                        valid.permissions(),
-                        Instant.now(),
-                        valid.expiry(),
-                        valid.tokenId()
-                );
-
-                if (sessionManager.registerSession(ctx.channel(), identity)) {
-                    // Send success response
-                    String response = """
-                            {"type":"auth_success","clientId":"%s","expiresIn":%d}"""
-                            .formatted(identity.clientId(), identity.remainingSeconds());
-                    ctx.writeAndFlush(new TextWebSocketFrame(response));
-
-                    LOGGER.info("WebSocket authenticated: " + identity.clientId());
-                } else {
-                    sessionManager.sendError(ctx.channel(), "MAX_CONNECTIONS",
-                            "Maximum WebSocket connections reached");
-                    ctx.close();
-                }
+                registerAuthenticated(ctx, identity);
             }
             case ValidatedToken.Invalid invalid -> {
                 sessionManager.sendError(ctx.channel(), "INVALID_TOKEN", invalid.reason());
@@ -137,6 +177,85 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
         }
     }
 
+    /**
+     * Handle reauth message: move a live session onto a fresh token of the same client.
+     * A rejected token leaves the session on its current one until that expires.
+     */
+    private void handleReauth(ChannelHandlerContext ctx, JsonObject message) {
+        var session = sessionManager.getSession(ctx.channel());
+        if (session == null) {
+            sessionManager.sendError(ctx.channel(), "NOT_AUTHENTICATED", "Authenticate first");
+            return;
+        }
+
+        String token = message.has("token") ? message.get("token").getAsString() : null;
+        if (token == null || token.isBlank()) {
+            sessionManager.sendError(ctx.channel(), "AUTH_REQUIRED", "Token required for authentication");
+            return;
+        }
+
+        switch (tokenGenerator.validateToken(token)) {
+            case ValidatedToken.Valid valid -> {
+                if (tokenGenerator.isRevoked(valid)) {
+                    sessionManager.sendError(ctx.channel(), "INVALID_TOKEN", "Token revoked");
+                    return;
+                }
+
+                ClientIdentity identity = ClientIdentity.from(valid);
+                if (!identity.clientId().equals(session.identity().clientId())) {
+                    sessionManager.sendError(ctx.channel(), "CLIENT_MISMATCH",
+                            "Token was issued to a different client");
+                    return;
+                }
+                if (!identity.hasPermission(ApiPermissions.WEBSOCKET_CONNECT)) {
+                    sessionManager.sendError(ctx.channel(), "FORBIDDEN",
+                            "Missing permission: " + ApiPermissions.WEBSOCKET_CONNECT);
+                    ctx.close();
+                    return;
+                }
+
+                sessionManager.reauthenticate(ctx.channel(), identity);
+
+                // Drop subscriptions the new permissions no longer cover
+                List<String> unsubscribed = new ArrayList<>();
+                for (String pattern : List.copyOf(session.subscriptions())) {
+                    if (!canSubscribe(identity, pattern)) {
+                        sessionManager.unsubscribe(ctx.channel(), pattern);
+                        unsubscribed.add(pattern);
+                    }
+                }
+
+                String response = """
+                        {"type":"reauth_success","clientId":"%s","expiresIn":%d,"unsubscribed":%s}"""
+                        .formatted(identity.clientId(), identity.remainingSeconds(), GSON.toJson(unsubscribed));
+                ctx.writeAndFlush(new TextWebSocketFrame(response));
+            }
+            case ValidatedToken.Invalid invalid ->
+                    sessionManager.sendError(ctx.channel(), "INVALID_TOKEN", invalid.reason());
+            case ValidatedToken.Expired expired ->
+                    sessionManager.sendError(ctx.channel(), "EXPIRED_TOKEN", "Token has expired");
+        }
+    }
+
+    /**
+     * Register a session for an authenticated identity and confirm it to the client.
+     */
+    private void registerAuthenticated(ChannelHandlerContext ctx, ClientIdentity identity) {
+        if (sessionManager.registerSession(ctx.channel(), identity)) {
+            // Send success response
+            String response = """
+                    {"type":"auth_success","clientId":"%s","expiresIn":%d}"""
+                    .formatted(identity.clientId(), identity.remainingSeconds());
+            ctx.writeAndFlush(new TextWebSocketFrame(response));
+
+            LOGGER.info("WebSocket authenticated: " + identity.clientId());
+        } else {
+            sessionManager.sendError(ctx.channel(), "MAX_CONNECTIONS",
+                    "Maximum WebSocket connections reached");
+            ctx.close();
+        }
+    }
+
     /**
      * Handle subscribe message.
      */
@@ -152,6 +271,15 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
             return;
         }
 
+        Subscription.Options options;
+        try {
+            options = Subscription.Options.parse(message);
+        } catch (IllegalArgumentException e) {
+            sessionManager.sendError(ctx.channel(), "INVALID_FIELD", e.getMessage());
+            return;
+        }
+
+        List<String> subscribed = new ArrayList<>();
         var eventsArray = message.getAsJsonArray("events");
         for (var event : eventsArray) {
             String eventType = event.getAsString();
@@ -163,7 +291,8 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
                 continue;
             }
 
-            sessionManager.subscribe(ctx.channel(), eventType);
+            sessionManager.subscribe(ctx.channel(), new Subscription(eventType, options));
+            subscribed.add(eventType);
         }
 
         // Confirm subscription
@@ -171,6 +300,11 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
                 {"type":"subscribed","events":%s}"""
                 .formatted(GSON.toJson(session.subscriptions()));
         ctx.writeAndFlush(new TextWebSocketFrame(response));
+
+        // Missed events go out before any live event queued behind this message
+        if (message.has("resumeFrom") && !subscribed.isEmpty()) {
+            sessionManager.replay(ctx.channel(), subscribed, message.get("resumeFrom").getAsLong());
+        }
     }
 
     /**
@@ -201,28 +335,111 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
     }
 
     /**
-     * Handle ping message.
+     * Handle request message: run a REST call and answer with a response carrying its id.
      */
-    private void handlePing(ChannelHandlerContext ctx) {
+    private void handleRequest(ChannelHandlerContext ctx, JsonObject message) {
+        var session = sessionManager.getSession(ctx.channel());
+        if (session == null) {
+            sessionManager.sendError(ctx.channel(), "NOT_AUTHENTICATED", "Authenticate first");
+            return;
+        }
+
+        JsonElement id = message.get("id");
+        if (id == null || id.isJsonNull()) {
+            sessionManager.sendError(ctx.channel(), "MISSING_FIELD", "id, method and path fields required");
+            return;
+        }
+
+        String path = stringField(message, "path");
+        if (path == null || !path.startsWith("/")) {
+            sendResponse(ctx, id, ApiException.BadRequest.invalidField("path", "must be a string starting with /"));
+            return;
+        }
+
+        String methodName = stringField(message, "method");
+        HttpMethod method = methodName != null ? REQUEST_METHODS.get(methodName.toUpperCase(Locale.ROOT)) : null;
+        if (method == null) {
+            sendResponse(ctx, id, ApiException.BadRequest.invalidField("method",
+                    "must be GET, POST, PUT or DELETE"));
+            return;
+        }
+
+        int limit = config.websocket().effectiveMaxInFlightRequests();
+        if (!session.tryBeginRequest(limit)) {
+            sendResponse(ctx, id, ApiException.ServiceUnavailable.tooManyInFlight(limit));
+            return;
+        }
+
+        JsonElement body = message.get("body");
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, path,
+                body != null && !body.isJsonNull()
+                        ? Unpooled.copiedBuffer(GSON.toJson(body), StandardCharsets.UTF_8)
+                        : Unpooled.EMPTY_BUFFER);
+
+        try {
+            requestExecutor.execute(() -> {
+                try {
+                    String response = router.dispatch(ctx.channel(), session.identity(), request);
+                    sendResponse(ctx, id, HttpResponseStatus.OK.code(), response);
+                } catch (ApiException e) {
+                    LOGGER.log(Level.FINE, "API error: " + e.getMessage(), e);
+                    sendResponse(ctx, id, e);
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Unexpected error handling WebSocket request", e);
+                    sendResponse(ctx, id, new ApiException.InternalError("Internal server error"));
+                } finally {
+                    request.release();
+                    session.endRequest();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            request.release();
+            session.endRequest();
+        }
+    }
+
+    /**
+     * Get a string field, or null if it is missing or not a string.
+     */
+    private static String stringField(JsonObject message, String name) {
+        JsonElement value = message.get(name);
+        return value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()
+                ? value.getAsString()
+                : null;
+    }
+
+    private void sendResponse(ChannelHandlerContext ctx, JsonElement id, ApiException error) {
+        sendResponse(ctx, id, error.status().code(), error.toJson());
+    }
+
+    private void sendResponse(ChannelHandlerContext ctx, JsonElement id, int status, String body) {
         String response = """
-                {"type":"pong","timestamp":%d}"""
-                .formatted(System.currentTimeMillis());
+                {"type":"response","id":%s,"status":%d,"body":%s}"""
+                .formatted(GSON.toJson(id), status, body);
         ctx.writeAndFlush(new TextWebSocketFrame(response));
     }
 
     /**
-     * Check if identity has WebSocket connect permission.
+     * Handle ping message.
      */
-    private boolean hasWsPermission(Set<String> permissions) {
-        return permissions.contains("api.*")
-                || permissions.contains(ApiPermissions.WEBSOCKET_CONNECT)
-                || permissions.contains(ApiPermissions.ALL);
+    private void handlePing(ChannelHandlerContext ctx) {
+        String response = """
+                {"type":"pong","timestamp":%d}"""
+                .formatted(System.currentTimeMillis());
+        ctx.writeAndFlush(new TextWebSocketFrame(response));
     }
 
     /**
      * Check if identity can subscribe to event type.
      */
     private boolean canSubscribe(ClientIdentity identity, String eventType) {
+        // Live coordinates are the same data as GET /players/{uuid}/location
+        if (eventType.equals(PositionStream.EVENT_TYPE)
+                && !identity.hasPermission(ApiPermissions.PLAYERS_LOCATION_READ)) {
+            return false;
+        }
+
         // Map event types to permissions
         String requiredPermission = switch (eventType) {
             case "player.join", "player.leave", "player.*" -> ApiPermissions.WEBSOCKET_SUBSCRIBE_PLAYERS;
@@ -241,12 +458,27 @@ public final class WebSocketHandler extends SimpleChannelInboundHandler<TextWebS
         return identity.hasPermission(requiredPermission);
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            sessionManager.drain(ctx.channel());
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         sessionManager.removeSession(ctx.channel());
         super.channelInactive(ctx);
     }
 
+    /**
+     * Stop running requests made over WebSocket sessions.
+     */
+    public void shutdown() {
+        requestExecutor.shutdownNow();
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         LOGGER.log(Level.WARNING, "WebSocket error", cause);
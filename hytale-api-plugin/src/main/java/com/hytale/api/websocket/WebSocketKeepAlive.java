@@ -0,0 +1,127 @@
+package com.hytale.api.websocket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Server-driven WebSocket liveness.
+ * Once the handshake completes, a ping frame carrying its send time goes out
+ * every interval; the matching pong gives the connection's round-trip time.
+ * Connections that miss too many pongs in a row are closed, so half-open TCP
+ * connections do not keep holding session slots. This replaces the generic
+ * idle timeout for upgraded channels, which would close quiet subscribers.
+ */
+@ChannelHandler.Sharable
+public final class WebSocketKeepAlive extends ChannelInboundHandlerAdapter {
+    private static final Logger LOGGER = Logger.getLogger(WebSocketKeepAlive.class.getName());
+
+    private static final AttributeKey<Liveness> LIVENESS_KEY = AttributeKey.valueOf("api.ws.liveness");
+
+    private final long intervalMillis;
+    private final int maxMissedPongs;
+
+    /**
+     * Per-channel ping state; missed is only touched on the channel's event loop.
+     */
+    private static final class Liveness {
+        ScheduledFuture<?> task;
+        int missed;
+        volatile long rttNanos = -1;
+    }
+
+    /**
+     * @param intervalSeconds time between pings
+     * @param maxMissedPongs  consecutive unanswered pings before the connection is closed
+     */
+    public WebSocketKeepAlive(int intervalSeconds, int maxMissedPongs) {
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+        this.maxMissedPongs = maxMissedPongs;
+    }
+
+    /**
+     * Get a connection's last measured round-trip time in milliseconds, or -1 if not yet known.
+     */
+    public static double rttMillis(Channel channel) {
+        Liveness liveness = channel.attr(LIVENESS_KEY).get();
+        return liveness != null && liveness.rttNanos >= 0 ? liveness.rttNanos / 1_000_000.0 : -1;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+            start(ctx);
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    private void start(ChannelHandlerContext ctx) {
+        // Pings keep the connection busy; the HTTP idle timeout no longer applies
+        if (ctx.pipeline().get("idleState") != null) {
+            ctx.pipeline().remove("idleState");
+        }
+
+        Liveness liveness = new Liveness();
+        ctx.channel().attr(LIVENESS_KEY).set(liveness);
+        liveness.task = ctx.executor().scheduleAtFixedRate(
+                () -> ping(ctx, liveness), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void ping(ChannelHandlerContext ctx, Liveness liveness) {
+        if (liveness.missed >= maxMissedPongs) {
+            LOGGER.fine(() -> "Closing WebSocket after %d missed pongs: %s"
+                    .formatted(liveness.missed, ctx.channel().remoteAddress()));
+            liveness.task.cancel(false);
+            ctx.close();
+            return;
+        }
+        liveness.missed++;
+
+        ByteBuf payload = ctx.alloc().buffer(Long.BYTES).writeLong(System.nanoTime());
+        ctx.writeAndFlush(new PingWebSocketFrame(payload));
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof PongWebSocketFrame pong)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        try {
+            Liveness liveness = ctx.channel().attr(LIVENESS_KEY).get();
+            if (liveness == null) return;
+
+            // Unsolicited pongs count as a heartbeat but carry no timing
+            ByteBuf content = pong.content();
+            if (content.readableBytes() == Long.BYTES) {
+                long rtt = System.nanoTime() - content.getLong(content.readerIndex());
+                if (rtt >= 0 && rtt <= TimeUnit.MILLISECONDS.toNanos(intervalMillis * (maxMissedPongs + 1))) {
+                    liveness.rttNanos = rtt;
+                }
+            }
+            liveness.missed = 0;
+        } finally {
+            pong.release();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Liveness liveness = ctx.channel().attr(LIVENESS_KEY).get();
+        if (liveness != null && liveness.task != null) {
+            liveness.task.cancel(false);
+        }
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,68 @@
+package com.hytale.api.websocket;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.logging.Logger;
+
+/**
+ * Caps the size of inbound WebSocket messages after decompression.
+ * The frame size limit only applies on the wire, so a small permessage-deflate
+ * frame, or a long run of continuation frames, could otherwise hand the
+ * handlers an arbitrarily large message. Sits after the deflate decoder; a
+ * message over the cap closes the connection with 1009 (message too big).
+ * One instance per channel.
+ */
+public final class WebSocketMessageLimit extends ChannelInboundHandlerAdapter {
+    private static final Logger LOGGER = Logger.getLogger(WebSocketMessageLimit.class.getName());
+
+    private final int maxMessageBytes;
+    private long messageBytes;
+    private boolean closed;
+
+    /**
+     * @param maxMessageBytes largest decompressed message accepted, summed over its fragments
+     */
+    public WebSocketMessageLimit(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof TextWebSocketFrame
+                || msg instanceof BinaryWebSocketFrame
+                || msg instanceof ContinuationWebSocketFrame)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        if (closed) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        WebSocketFrame frame = (WebSocketFrame) msg;
+        if (!(frame instanceof ContinuationWebSocketFrame)) {
+            messageBytes = 0;
+        }
+        messageBytes += frame.content().readableBytes();
+        if (messageBytes <= maxMessageBytes) {
+            ctx.fireChannelRead(frame);
+            return;
+        }
+
+        frame.release();
+        closed = true;
+        LOGGER.fine(() -> "Closing WebSocket after a message over %d bytes: %s"
+                .formatted(maxMessageBytes, ctx.channel().remoteAddress()));
+        // Best effort: a peer flooding us need not read the close frame before we let go
+        ctx.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.MESSAGE_TOO_BIG));
+        ctx.close();
+    }
+}
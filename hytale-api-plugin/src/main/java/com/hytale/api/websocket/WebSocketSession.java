@@ -0,0 +1,490 @@
+package com.hytale.api.websocket;
+
+import com.hytale.api.security.ClientIdentity;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * An authenticated WebSocket connection and its subscriptions.
+ * Sessions compare by identity so they can be indexed while their
+ * subscriptions change.
+ *
+ * <p>Outbound events go straight to the channel while it is writable. Once
+ * Netty's write buffer passes its high watermark, events wait in a bounded
+ * queue that drains when the channel becomes writable again; when the queue is
+ * full the matching subscription's {@link OverflowPolicy} decides what is lost.
+ *
+ * <p>Events for a batched subscription are collected instead and sent as one
+ * {@code {"type":"batch","events":[...]}} frame when the subscription's window
+ * ends or the batch is full. Delivery, batch and queue state are only touched
+ * on the channel's event loop.
+ */
+public final class WebSocketSession {
+    private static final Logger LOGGER = Logger.getLogger(WebSocketSession.class.getName());
+
+    /**
+     * Close code for sessions dropped by {@link OverflowPolicy#DISCONNECT}.
+     */
+    public static final int CLOSE_SLOW_CONSUMER = 4008;
+
+    /**
+     * Close code for sessions whose token expired without a {@code reauth}, or was revoked.
+     */
+    public static final int CLOSE_TOKEN_EXPIRED = 4001;
+
+    /**
+     * How long an expired session's close frame may take to drain before the channel is closed anyway.
+     */
+    private static final long EXPIRY_CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private static final Subscription UNSUBSCRIBED = new Subscription("", Subscription.Options.DEFAULT);
+
+    private final Channel channel;
+    private volatile ClientIdentity identity;
+    private final int maxQueued;
+    private final long connectedAt = System.currentTimeMillis();
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    // Replaced whenever subscriptions change, so lookups never see a stale resolution
+    private volatile Map<String, Subscription> resolved = new ConcurrentHashMap<>();
+
+    // Event loop only
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    private final Map<String, Batch> batches = new HashMap<>();
+    private Map<String, Long> replayFloors = Map.of();
+    private ScheduledFuture<?> expiryWarning;
+    private ScheduledFuture<?> expiryClose;
+
+    // Written on the event loop, read by stats
+    private volatile int queued;
+    private volatile long dropped;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private record Queued(String key, WebSocketFrame frame) {}
+
+    /**
+     * Envelopes collected for one batched subscription.
+     */
+    private static final class Batch {
+        Subscription subscription;
+        ByteBuf buf;
+        int count;
+        ScheduledFuture<?> timer;
+
+        Batch(Subscription subscription) {
+            this.subscription = subscription;
+        }
+    }
+
+    WebSocketSession(Channel channel, ClientIdentity identity, int maxQueued) {
+        this.channel = channel;
+        this.identity = identity;
+        this.maxQueued = maxQueued;
+    }
+
+    public Channel channel() {
+        return channel;
+    }
+
+    public ClientIdentity identity() {
+        return identity;
+    }
+
+    /**
+     * Replace the identity after an in-band re-authentication.
+     */
+    void setIdentity(ClientIdentity identity) {
+        this.identity = identity;
+    }
+
+    /**
+     * (Re)start the timers that warn before the identity's token expires and
+     * close the session once it has. Must be called on the channel's event loop.
+     *
+     * @param warningLeadMillis how long before expiry to send the warning
+     */
+    void scheduleExpiry(long warningLeadMillis) {
+        cancelExpiry();
+
+        Instant expiry = identity.tokenExpiry();
+        if (expiry == null) return;
+
+        long remaining = expiry.toEpochMilli() - System.currentTimeMillis();
+        expiryWarning = channel.eventLoop().schedule(this::warnExpiry,
+                Math.max(0, remaining - warningLeadMillis), TimeUnit.MILLISECONDS);
+        expiryClose = channel.eventLoop().schedule(this::expire,
+                Math.max(0, remaining), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelExpiry() {
+        if (expiryWarning != null) {
+            expiryWarning.cancel(false);
+            expiryWarning = null;
+        }
+        if (expiryClose != null) {
+            expiryClose.cancel(false);
+            expiryClose = null;
+        }
+    }
+
+    private void warnExpiry() {
+        if (!channel.isActive()) return;
+        String message = """
+                {"type":"token_expiring","expiresIn":%d,"timestamp":%d}"""
+                .formatted(identity.remainingSeconds(), System.currentTimeMillis());
+        channel.writeAndFlush(new TextWebSocketFrame(message));
+    }
+
+    private void expire() {
+        LOGGER.info("Closing WebSocket session with expired token: " + identity.clientId());
+        closeForToken("Token expired");
+    }
+
+    /**
+     * Close the session because its token or client was revoked. Must run on the channel's event loop.
+     */
+    void revoke() {
+        LOGGER.info("Closing WebSocket session with revoked token: " + identity.clientId());
+        closeForToken("Token revoked");
+    }
+
+    private void closeForToken(String reason) {
+        clear();
+        channel.writeAndFlush(new CloseWebSocketFrame(CLOSE_TOKEN_EXPIRED, reason))
+                .addListener(ChannelFutureListener.CLOSE);
+        // A stalled peer would otherwise keep the write, and the channel, pending
+        channel.eventLoop().schedule(() -> {
+            channel.close();
+        }, EXPIRY_CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the subscribed patterns.
+     */
+    public Set<String> subscriptions() {
+        return subscriptions.keySet();
+    }
+
+    public long connectedAt() {
+        return connectedAt;
+    }
+
+    /**
+     * Get the number of events waiting for the channel to become writable.
+     */
+    public int queuedCount() {
+        return queued;
+    }
+
+    /**
+     * Get the number of events lost to overflow.
+     */
+    public long droppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Get the number of requests made over the socket that have not been answered.
+     */
+    public int inFlightRequests() {
+        return inFlight.get();
+    }
+
+    /**
+     * Count a request as in flight unless the session is already at the limit.
+     */
+    boolean tryBeginRequest(int limit) {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) return false;
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void endRequest() {
+        inFlight.decrementAndGet();
+    }
+
+    public boolean isSubscribedTo(String event) {
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.matches(event)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add or replace a subscription. Must be called on the channel's event loop.
+     */
+    void addSubscription(Subscription subscription) {
+        subscriptions.put(subscription.pattern(), subscription);
+        resolved = new ConcurrentHashMap<>();
+
+        // Events collected under the old options go out now
+        Batch batch = batches.get(subscription.pattern());
+        if (batch != null) {
+            if (flushBatch(batch)) {
+                channel.flush();
+            }
+            if (subscription.options().isBatched()) {
+                batch.subscription = subscription;
+            } else {
+                batches.remove(subscription.pattern());
+            }
+        }
+    }
+
+    /**
+     * Remove a subscription. Must be called on the channel's event loop.
+     */
+    boolean removeSubscription(String pattern) {
+        boolean removed = subscriptions.remove(pattern) != null;
+        resolved = new ConcurrentHashMap<>();
+        Batch batch = batches.remove(pattern);
+        if (batch != null && flushBatch(batch)) {
+            channel.flush();
+        }
+        return removed;
+    }
+
+    /**
+     * Find the most specific subscription matching an event type, or null.
+     */
+    Subscription subscriptionFor(String eventType) {
+        Map<String, Subscription> cache = resolved;
+        Subscription cached = cache.get(eventType);
+        if (cached != null) {
+            return cached != UNSUBSCRIBED ? cached : null;
+        }
+        Subscription best = null;
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.matches(eventType)
+                    && (best == null || subscription.specificity() > best.specificity())) {
+                best = subscription;
+            }
+        }
+        cache.put(eventType, best != null ? best : UNSUBSCRIBED);
+        return best;
+    }
+
+    /**
+     * Whether an event passes the filter of the subscription it would be delivered under.
+     */
+    boolean accepts(String eventType, EventAttributes event) {
+        Subscription subscription = subscriptionFor(eventType);
+        return subscription != null && subscription.accepts(event);
+    }
+
+    /**
+     * Set, per event type, the last sequence number sent by a replay; live events
+     * at or below it are duplicates. Must be called on the channel's event loop.
+     */
+    void setReplayFloors(Map<String, Long> floors) {
+        if (replayFloors.isEmpty()) {
+            replayFloors = new HashMap<>(floors);
+        } else {
+            floors.forEach((eventType, seq) -> replayFloors.merge(eventType, seq, Math::max));
+        }
+    }
+
+    /**
+     * Deliver a frame, queueing it if the channel is not writable. Takes ownership
+     * of the frame. Must be called on the channel's event loop.
+     *
+     * @param seq the event's sequence number, or 0 if it has none or is a replay
+     * @return true if the frame was written and the channel needs a flush
+     */
+    boolean offer(String eventType, long seq, WebSocketFrame frame) {
+        if (!channel.isActive()) {
+            frame.release();
+            return false;
+        }
+        if (seq != 0 && !replayFloors.isEmpty()) {
+            Long floor = replayFloors.get(eventType);
+            if (floor != null && seq <= floor) {
+                // Already sent by the replay
+                frame.release();
+                return false;
+            }
+        }
+        Subscription subscription = subscriptionFor(eventType);
+        if (subscription != null && subscription.options().isBatched()) {
+            return addToBatch(subscription, frame);
+        }
+        return enqueue(eventType, subscription, frame);
+    }
+
+    /**
+     * Write a frame now if possible, otherwise queue it under the subscription's overflow policy.
+     *
+     * @param key frames with equal keys replace each other under {@link OverflowPolicy#COALESCE}
+     */
+    private boolean enqueue(String key, Subscription subscription, WebSocketFrame frame) {
+        if (queue.isEmpty() && channel.isWritable()) {
+            channel.write(frame);
+            return true;
+        }
+
+        OverflowPolicy policy = subscription != null ? subscription.options().overflow() : OverflowPolicy.DROP_OLDEST;
+
+        if (policy == OverflowPolicy.COALESCE && replaceQueued(key, frame)) {
+            dropped++;
+            return false;
+        }
+        if (queue.size() >= maxQueued) {
+            switch (policy) {
+                case DROP_NEWEST -> {
+                    frame.release();
+                    dropped++;
+                    return false;
+                }
+                case DISCONNECT -> {
+                    frame.release();
+                    dropped++;
+                    disconnectSlowConsumer();
+                    return false;
+                }
+                case DROP_OLDEST, COALESCE -> {
+                    queue.poll().frame().release();
+                    dropped++;
+                }
+            }
+        }
+        queue.add(new Queued(key, frame));
+        queued = queue.size();
+        return false;
+    }
+
+    /**
+     * Append an event envelope to its subscription's batch, sending the batch if full.
+     */
+    private boolean addToBatch(Subscription subscription, WebSocketFrame frame) {
+        Batch batch = batches.computeIfAbsent(subscription.pattern(), k -> new Batch(subscription));
+        ByteBuf envelope = frame.content();
+        if (batch.count == 0) {
+            batch.buf = channel.alloc().buffer(envelope.readableBytes() + 64);
+            ByteBufUtil.writeAscii(batch.buf, "{\"type\":\"batch\",\"events\":[");
+            batch.timer = channel.eventLoop().schedule(() -> {
+                batch.timer = null;
+                if (flushBatch(batch)) {
+                    channel.flush();
+                }
+            }, subscription.options().batchMs(), TimeUnit.MILLISECONDS);
+        } else {
+            batch.buf.writeByte(',');
+        }
+        batch.buf.writeBytes(envelope, envelope.readerIndex(), envelope.readableBytes());
+        frame.release();
+
+        if (++batch.count >= subscription.options().maxBatch()) {
+            return flushBatch(batch);
+        }
+        return false;
+    }
+
+    /**
+     * Send a batch's collected events as one frame.
+     *
+     * @return true if the frame was written and the channel needs a flush
+     */
+    private boolean flushBatch(Batch batch) {
+        if (batch.timer != null) {
+            batch.timer.cancel(false);
+            batch.timer = null;
+        }
+        if (batch.count == 0) {
+            return false;
+        }
+        ByteBuf buf = batch.buf;
+        batch.buf = null;
+        batch.count = 0;
+        if (!channel.isActive()) {
+            buf.release();
+            return false;
+        }
+        ByteBufUtil.writeAscii(buf, "],\"timestamp\":");
+        ByteBufUtil.writeAscii(buf, Long.toString(System.currentTimeMillis()));
+        buf.writeByte('}');
+        return enqueue("batch:" + batch.subscription.pattern(), batch.subscription, new TextWebSocketFrame(buf));
+    }
+
+    /**
+     * Write queued frames while the channel stays writable.
+     * Must be called on the channel's event loop.
+     */
+    void drain() {
+        boolean wrote = false;
+        while (!queue.isEmpty() && channel.isWritable()) {
+            channel.write(queue.poll().frame());
+            wrote = true;
+        }
+        queued = queue.size();
+        if (wrote) {
+            channel.flush();
+        }
+    }
+
+    /**
+     * Release queued frames and pending batches. Must be called on the channel's event loop.
+     */
+    void clear() {
+        cancelExpiry();
+
+        Queued next;
+        while ((next = queue.poll()) != null) {
+            next.frame().release();
+        }
+        queued = 0;
+
+        for (Batch batch : batches.values()) {
+            if (batch.timer != null) {
+                batch.timer.cancel(false);
+            }
+            if (batch.buf != null) {
+                batch.buf.release();
+            }
+        }
+        batches.clear();
+    }
+
+    private boolean replaceQueued(String key, WebSocketFrame frame) {
+        // Newest first; a coalesced key has at most one queued entry
+        Iterator<Queued> it = queue.descendingIterator();
+        while (it.hasNext()) {
+            Queued entry = it.next();
+            if (entry.key().equals(key)) {
+                it.remove();
+                entry.frame().release();
+                queue.add(new Queued(key, frame));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void disconnectSlowConsumer() {
+        LOGGER.warning("Closing slow WebSocket consumer: %s (%d queued)".formatted(identity.clientId(), queue.size()));
+        clear();
+        // Best effort: a consumer this far behind may never drain the close frame
+        channel.writeAndFlush(new CloseWebSocketFrame(CLOSE_SLOW_CONSUMER, "Outbound queue overflow"));
+        channel.close();
+    }
+}
@@ -2,16 +2,29 @@ package com.hytale.api.websocket;
 
 import com.hytale.api.config.ApiConfig.WebSocketConfig;
 import com.hytale.api.security.ClientIdentity;
+import com.hytale.api.security.RevocationStore;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.util.concurrent.GlobalEventExecutor;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -21,46 +34,42 @@ import java.util.logging.Logger;
 public final class WebSocketSessionManager {
     private static final Logger LOGGER = Logger.getLogger(WebSocketSessionManager.class.getName());
 
+    /**
+     * Envelope bytes besides the type and payload, sequence and timestamp digits included.
+     */
+    private static final int ENVELOPE_OVERHEAD = 96;
+
     private final WebSocketConfig config;
     private final ChannelGroup allChannels;
     private final Map<Channel, WebSocketSession> sessions;
-    private final Map<String, Set<Channel>> subscriptions;
+    private final TopicIndex topics;
+    private final Map<EventLoop, FlushBatch> flushBatches = new ConcurrentHashMap<>();
+    private final WebSocketCompression compression;
+    private final EventHistory history;
+    private final List<SubscribeListener> subscribeListeners = new CopyOnWriteArrayList<>();
+
+    private record SubscribeListener(String eventType, Consumer<WebSocketSession> listener) {}
 
     public WebSocketSessionManager(WebSocketConfig config) {
         this.config = config;
         this.allChannels = new DefaultChannelGroup("ws-sessions", GlobalEventExecutor.INSTANCE);
         this.sessions = new ConcurrentHashMap<>();
-        this.subscriptions = new ConcurrentHashMap<>();
-    }
-
-    /**
-     * WebSocket session information.
-     */
-    public record WebSocketSession(
-            Channel channel,
-            ClientIdentity identity,
-            Set<String> subscriptions
-    ) {
-        public boolean isSubscribedTo(String event) {
-            if (subscriptions.isEmpty()) return false;
-            if (subscriptions.contains("*")) return true;
-
-            // Check exact match
-            if (subscriptions.contains(event)) return true;
-
-            // Check wildcard patterns (e.g., "player.*" matches "player.join")
-            for (String sub : subscriptions) {
-                if (sub.endsWith(".*")) {
-                    String prefix = sub.substring(0, sub.length() - 1);
-                    if (event.startsWith(prefix)) return true;
-                }
-            }
-            return false;
-        }
+        this.topics = new TopicIndex();
+        this.compression = config.effectiveCompression().enabled()
+                ? new WebSocketCompression(config.effectiveCompression())
+                : null;
+        this.history = config.effectiveReplay().enabled()
+                ? new EventHistory(config.effectiveReplay())
+                : null;
     }
 
     /**
      * Register a new authenticated session.
+     * An existing session on the channel is never replaced, so its subscriptions
+     * and expiry timers cannot be orphaned; switching tokens goes through
+     * {@link #reauthenticate}.
+     *
+     * @return false if the connection limit is reached or the channel already has a session
      */
     public boolean registerSession(Channel channel, ClientIdentity identity) {
         if (sessions.size() >= config.maxConnections()) {
@@ -68,14 +77,60 @@ public final class WebSocketSessionManager {
             return false;
         }
 
-        var session = new WebSocketSession(channel, identity, new CopyOnWriteArraySet<>());
-        sessions.put(channel, session);
+        var session = new WebSocketSession(channel, identity, config.effectiveMaxQueuedMessages());
+        if (sessions.putIfAbsent(channel, session) != null) {
+            LOGGER.warning("WebSocket channel already has a session: " + identity.clientId());
+            return false;
+        }
         allChannels.add(channel);
+        scheduleExpiry(session);
 
         LOGGER.info("WebSocket session registered for client: " + identity.clientId());
         return true;
     }
 
+    /**
+     * Swap a session's identity for one from a fresh token and restart its expiry timers.
+     * Subscriptions are left to the caller to re-check against the new permissions.
+     *
+     * @return false if the channel has no session
+     */
+    public boolean reauthenticate(Channel channel, ClientIdentity identity) {
+        var session = sessions.get(channel);
+        if (session == null) return false;
+
+        session.setIdentity(identity);
+        scheduleExpiry(session);
+
+        LOGGER.fine(() -> "WebSocket session re-authenticated for client: " + identity.clientId());
+        return true;
+    }
+
+    private void scheduleExpiry(WebSocketSession session) {
+        long warningLead = config.effectiveTokenExpiryWarningSeconds() * 1000L;
+        EventLoop loop = session.channel().eventLoop();
+        if (loop.inEventLoop()) {
+            session.scheduleExpiry(warningLead);
+        } else {
+            loop.execute(() -> session.scheduleExpiry(warningLead));
+        }
+    }
+
+    /**
+     * Close sessions whose identity a revocation now covers, with the token-expired close code.
+     */
+    public void closeRevoked(RevocationStore revocations) {
+        for (WebSocketSession session : sessions.values()) {
+            if (revocations.isRevoked(session.identity())) {
+                session.channel().eventLoop().execute(() -> {
+                    if (session.channel().isActive()) {
+                        session.revoke();
+                    }
+                });
+            }
+        }
+    }
+
     /**
      * Remove a session when channel closes.
      */
@@ -84,12 +139,17 @@ public final class WebSocketSessionManager {
         allChannels.remove(channel);
 
         if (session != null) {
+            // Keep recording its topics in case the client reconnects and resumes
+            if (history != null) {
+                history.retain(session.subscriptions());
+            }
+
             // Remove from all subscription lists
-            for (String event : session.subscriptions()) {
-                var channels = subscriptions.get(event);
-                if (channels != null) {
-                    channels.remove(channel);
-                }
+            topics.removeAll(session, session.subscriptions());
+            if (channel.eventLoop().inEventLoop()) {
+                session.clear();
+            } else {
+                channel.eventLoop().execute(session::clear);
             }
             LOGGER.info("WebSocket session removed for client: " + session.identity().clientId());
         }
@@ -98,14 +158,63 @@ public final class WebSocketSessionManager {
     /**
      * Subscribe a session to an event type.
      */
-    public void subscribe(Channel channel, String eventType) {
+    public void subscribe(Channel channel, Subscription subscription) {
         var session = sessions.get(channel);
         if (session == null) return;
 
-        session.subscriptions().add(eventType);
-        subscriptions.computeIfAbsent(eventType, k -> new CopyOnWriteArraySet<>()).add(channel);
+        session.addSubscription(subscription);
+        topics.add(session, subscription.pattern());
+
+        for (SubscribeListener listener : subscribeListeners) {
+            if (subscription.matches(listener.eventType())) {
+                listener.listener().accept(session);
+            }
+        }
+
+        LOGGER.fine("Client %s subscribed to: %s %s".formatted(session.identity().clientId(),
+                subscription.pattern(), subscription.options()));
+    }
+
+    /**
+     * Call a listener whenever a session subscribes to a pattern covering an event type,
+     * e.g. to send the current state of a sampled topic. Called on the session's event loop.
+     */
+    public void onSubscribe(String eventType, Consumer<WebSocketSession> listener) {
+        subscribeListeners.add(new SubscribeListener(eventType, listener));
+    }
+
+    /**
+     * Get the sessions subscribed to an event type.
+     */
+    WebSocketSession[] subscribers(String eventType) {
+        return topics.recipients(eventType);
+    }
+
+    /**
+     * Send one session an event built for it alone, through its outbound queue.
+     */
+    void sendEvent(WebSocketSession session, String eventType, String jsonPayload) {
+        Channel channel = session.channel();
+        if (!channel.isActive()) return;
 
-        LOGGER.fine("Client %s subscribed to: %s".formatted(session.identity().clientId(), eventType));
+        TextWebSocketFrame frame = new TextWebSocketFrame(
+                encodeEnvelope(eventType, 0, jsonPayload, System.currentTimeMillis()));
+        Runnable write = () -> {
+            if (session.offer(eventType, 0, frame)) {
+                channel.flush();
+            }
+        };
+        EventLoop loop = channel.eventLoop();
+        if (loop.inEventLoop()) {
+            write.run();
+            return;
+        }
+        try {
+            loop.execute(write);
+        } catch (RejectedExecutionException e) {
+            // Loop shutting down
+            frame.release();
+        }
     }
 
     /**
@@ -115,11 +224,68 @@ public final class WebSocketSessionManager {
         var session = sessions.get(channel);
         if (session == null) return;
 
-        session.subscriptions().remove(eventType);
-        var channels = subscriptions.get(eventType);
-        if (channels != null) {
-            channels.remove(channel);
+        session.removeSubscription(eventType);
+        topics.remove(session, eventType);
+    }
+
+    /**
+     * Write frames queued while the channel was not writable.
+     * Called on the channel's event loop when writability changes.
+     */
+    public void drain(Channel channel) {
+        var session = sessions.get(channel);
+        if (session != null) {
+            session.drain();
+        }
+    }
+
+    /**
+     * Send a session the recorded events it missed after a sequence number, ahead
+     * of live events. If some could not be kept, a {@code gap} message comes first.
+     * Must be called on the channel's event loop, after subscribing to the patterns.
+     */
+    public void replay(Channel channel, Collection<String> patterns, long resumeFrom) {
+        var session = sessions.get(channel);
+        if (session == null) return;
+
+        if (history == null) {
+            sendGap(channel, resumeFrom, -1);
+            return;
         }
+
+        EventHistory.Replay replay = history.since(resumeFrom, patterns);
+        if (replay.lostThrough() > 0) {
+            sendGap(channel, resumeFrom, replay.lostThrough());
+        }
+        session.setReplayFloors(replay.floors());
+
+        boolean wrote = false;
+        for (EventHistory.Entry entry : replay.entries()) {
+            if (session.accepts(entry.eventType(), entry.attributes())) {
+                wrote |= session.offer(entry.eventType(), 0,
+                        new TextWebSocketFrame(Unpooled.wrappedBuffer(entry.envelope())));
+            }
+        }
+        if (wrote) {
+            channel.flush();
+        }
+
+        LOGGER.fine(() -> "Replayed %d events to %s from %d".formatted(
+                replay.entries().size(), session.identity().clientId(), resumeFrom));
+    }
+
+    private void sendGap(Channel channel, long resumeFrom, long lostThrough) {
+        String payload = """
+                {"type":"gap","resumeFrom":%d,"lostThrough":%d,"timestamp":%d}"""
+                .formatted(resumeFrom, lostThrough, System.currentTimeMillis());
+        channel.writeAndFlush(new TextWebSocketFrame(payload));
+    }
+
+    /**
+     * Get all active sessions.
+     */
+    public Collection<WebSocketSession> getSessions() {
+        return sessions.values();
     }
 
     /**
@@ -129,32 +295,193 @@ public final class WebSocketSessionManager {
         return sessions.get(channel);
     }
 
+    /**
+     * Whether any session is subscribed to an event type, or the event type is
+     * still being recorded for clients that may resume.
+     * Producers check this before building a payload nobody will receive.
+     */
+    public boolean hasListeners(String eventType) {
+        return topics.hasListeners(eventType) || (history != null && history.isRetained(eventType));
+    }
+
     /**
      * Broadcast an event to all subscribed sessions.
+     * The envelope is encoded once into a pooled direct buffer shared by every
+     * recipient; each event loop gets one task that writes to all of its sessions,
+     * and flushes are deferred to a per-loop flush task so bursts share syscalls.
+     * Sessions whose channel is not writable queue the event instead
+     * (see {@link WebSocketSession}).
      */
     public void broadcast(String eventType, String jsonPayload) {
-        String message = """
-                {"type":"%s","data":%s,"timestamp":%d}"""
-                .formatted(eventType, jsonPayload, System.currentTimeMillis());
+        broadcast(eventType, EventAttributes.NONE, () -> jsonPayload);
+    }
+
+    /**
+     * Broadcast an event to subscribed sessions whose filters accept it.
+     * Filters run against the event's attributes first; the payload is only
+     * built if at least one session will receive it.
+     */
+    public void broadcast(String eventType, EventAttributes attributes, Supplier<String> payload) {
+        EventHistory.Ring ring = history != null
+                ? history.recording(eventType, topics.hasListeners(eventType))
+                : null;
+
+        long seq;
+        ByteBuf envelope;
+        WebSocketSession[] recipients;
+        if (ring != null) {
+            // Record before resolving recipients, so a session subscribing meanwhile
+            // finds the event either in the history or among the recipients
+            String json = payload.get();
+            long timestamp = System.currentTimeMillis();
+            EventHistory.Recorded recorded = ring.append(attributes,
+                    next -> encodeEnvelope(eventType, next, json, timestamp));
+            seq = recorded.seq();
+            envelope = recorded.envelope();
+            recipients = accepting(topics.recipients(eventType), eventType, attributes);
+            if (recipients.length == 0) {
+                envelope.release();
+                return;
+            }
+        } else {
+            recipients = accepting(topics.recipients(eventType), eventType, attributes);
+            if (recipients.length == 0) return;
+            seq = history != null ? history.nextSequence() : 0;
+            envelope = encodeEnvelope(eventType, seq, payload.get(), System.currentTimeMillis());
+        }
+
+        TextWebSocketFrame frame = new TextWebSocketFrame(envelope);
+        try {
+            int start = 0;
+            while (start < recipients.length) {
+                EventLoop loop = recipients[start].channel().eventLoop();
+                int end = start + 1;
+                while (end < recipients.length && recipients[end].channel().eventLoop() == loop) {
+                    end++;
+                }
+                writeOnLoop(loop, eventType, seq, recipients, start, end, frame);
+                start = end;
+            }
+        } finally {
+            frame.release();
+        }
 
-        TextWebSocketFrame frame = new TextWebSocketFrame(message);
+        LOGGER.fine(() -> "Broadcast '%s' to %d sessions".formatted(eventType, recipients.length));
+    }
+
+    /**
+     * Narrow recipients to the sessions whose filters accept an event, keeping
+     * their event loop order. Returns the array itself when no session filters it out.
+     */
+    private static WebSocketSession[] accepting(WebSocketSession[] recipients, String eventType,
+                                                EventAttributes attributes) {
+        int i = 0;
+        while (i < recipients.length && recipients[i].accepts(eventType, attributes)) {
+            i++;
+        }
+        if (i == recipients.length) {
+            return recipients;
+        }
+
+        WebSocketSession[] accepted = new WebSocketSession[recipients.length - 1];
+        System.arraycopy(recipients, 0, accepted, 0, i);
+        int count = i;
+        for (i++; i < recipients.length; i++) {
+            if (recipients[i].accepts(eventType, attributes)) {
+                accepted[count++] = recipients[i];
+            }
+        }
+        return count == accepted.length ? accepted : Arrays.copyOf(accepted, count);
+    }
+
+    /**
+     * Write a frame to a run of sessions sharing an event loop, on that loop.
+     */
+    private void writeOnLoop(EventLoop loop, String eventType, long seq, WebSocketSession[] sessions,
+                             int start, int end, TextWebSocketFrame frame) {
+        if (loop.inEventLoop()) {
+            writeRun(loop, eventType, seq, sessions, start, end, frame);
+            return;
+        }
+        frame.retain();
+        try {
+            loop.execute(() -> {
+                try {
+                    writeRun(loop, eventType, seq, sessions, start, end, frame);
+                } finally {
+                    frame.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Loop shutting down
+            frame.release();
+        }
+    }
 
-        int sentCount = 0;
-        for (var entry : sessions.entrySet()) {
-            var channel = entry.getKey();
-            var session = entry.getValue();
+    private void writeRun(EventLoop loop, String eventType, long seq, WebSocketSession[] sessions,
+                          int start, int end, TextWebSocketFrame frame) {
+        FlushBatch batch = flushBatches.computeIfAbsent(loop, FlushBatch::new);
+        for (int i = start; i < end; i++) {
+            WebSocketSession session = sessions[i];
+            if (session.offer(eventType, seq, frame.retainedDuplicate())) {
+                batch.add(session.channel());
+            }
+        }
+    }
 
-            if (session.isSubscribedTo(eventType) && channel.isActive()) {
-                channel.writeAndFlush(frame.retainedDuplicate());
-                sentCount++;
+    /**
+     * Channels on one event loop written since the last flush.
+     * Only touched on its loop; the flush runs after tasks already queued, so
+     * broadcasts queued in a burst are flushed together.
+     */
+    private static final class FlushBatch implements Runnable {
+        private final EventLoop loop;
+        private final Set<Channel> dirty = new LinkedHashSet<>();
+        private boolean scheduled;
+
+        FlushBatch(EventLoop loop) {
+            this.loop = loop;
+        }
+
+        void add(Channel channel) {
+            dirty.add(channel);
+            if (!scheduled) {
+                scheduled = true;
+                loop.execute(this);
             }
         }
 
-        frame.release();
+        @Override
+        public void run() {
+            scheduled = false;
+            for (Channel channel : dirty) {
+                channel.flush();
+            }
+            dirty.clear();
+        }
+    }
 
-        if (sentCount > 0) {
-            LOGGER.fine("Broadcast '%s' to %d sessions".formatted(eventType, sentCount));
+    /**
+     * Encode {@code {"type":..,"seq":..,"data":..,"timestamp":..}} straight into a direct buffer.
+     * The sequence number is omitted when 0 (replay disabled).
+     */
+    private static ByteBuf encodeEnvelope(String eventType, long seq, String jsonPayload, long timestamp) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(
+                ENVELOPE_OVERHEAD + ByteBufUtil.utf8Bytes(eventType) + ByteBufUtil.utf8Bytes(jsonPayload));
+        ByteBufUtil.writeAscii(buf, "{\"type\":\"");
+        ByteBufUtil.writeUtf8(buf, eventType);
+        if (seq != 0) {
+            ByteBufUtil.writeAscii(buf, "\",\"seq\":");
+            ByteBufUtil.writeAscii(buf, Long.toString(seq));
+            ByteBufUtil.writeAscii(buf, ",\"data\":");
+        } else {
+            ByteBufUtil.writeAscii(buf, "\",\"data\":");
         }
+        ByteBufUtil.writeUtf8(buf, jsonPayload);
+        ByteBufUtil.writeAscii(buf, ",\"timestamp\":");
+        ByteBufUtil.writeAscii(buf, Long.toString(timestamp));
+        buf.writeByte('}');
+        return buf;
     }
 
     /**
@@ -183,6 +510,13 @@ public final class WebSocketSessionManager {
         channel.writeAndFlush(new TextWebSocketFrame(payload));
     }
 
+    /**
+     * Get permessage-deflate support, or null when disabled.
+     */
+    public WebSocketCompression getCompression() {
+        return compression;
+    }
+
     /**
      * Get count of active sessions.
      */